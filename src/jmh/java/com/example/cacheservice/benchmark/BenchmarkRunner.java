@@ -0,0 +1,47 @@
+package com.example.cacheservice.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks once per thread count and writes every result to a single JMH JSON file,
+ * so a run can be diffed against a saved baseline.
+ * <p>
+ * Driven by system properties: {@code jmh.threads} (comma-separated, default {@code 1,2,4,8}),
+ * {@code jmh.result} (output file) and {@code jmh.args} (ordinary JMH command line options,
+ * e.g. {@code -p backend=STUB -f 2}).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String extra = System.getProperty("jmh.args", "").trim();
+        CommandLineOptions commandLine = new CommandLineOptions(extra.isEmpty() ? new String[0] : extra.split("\\s+"));
+        String resultFile = System.getProperty("jmh.result", "target/jmh-result.json");
+
+        List<RunResult> results = new ArrayList<>();
+        for (String threads : System.getProperty("jmh.threads", "1,2,4,8").split(",")) {
+            OptionsBuilder options = new OptionsBuilder();
+            options.parent(commandLine);
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(CacheServiceBenchmark.class.getSimpleName());
+            }
+            options.threads(Integer.parseInt(threads.trim()));
+            results.addAll(new Runner(options.build()).run());
+        }
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, resultFile).writeOut(results);
+        System.out.println("Benchmark results written to " + resultFile);
+    }
+}
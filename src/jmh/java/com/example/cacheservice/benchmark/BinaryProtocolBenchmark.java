@@ -0,0 +1,85 @@
+package com.example.cacheservice.benchmark;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.protocol.BinaryCacheClient;
+import com.example.cacheservice.protocol.BinaryProtocolServer;
+import com.example.cacheservice.service.CacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through {@link BinaryProtocolServer} over loopback, all cache hits against a stub repository.
+ * <p>
+ * Each invocation sends {@code pipelineDepth} gets before waiting for any answer, so the score is
+ * batches per unit of time; multiply by the depth for requests. Depth 1 is plain request/response.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryProtocolBenchmark {
+
+    @Param({"1", "16", "128"})
+    public int pipelineDepth;
+
+    @Param({"1000"})
+    public int keySpace;
+
+    private CacheServiceImpl cacheService;
+    private BinaryProtocolServer server;
+    private BinaryCacheClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cacheService = new CacheServiceImpl(StubRepository.create(), CacheProperties.of(keySpace, 3_600_000L),
+                new SimpleMeterRegistry());
+        CacheProperties.BinaryProtocol settings = new CacheProperties.BinaryProtocol();
+        settings.setBindAddress("127.0.0.1");
+        settings.setPort(0);
+        server = new BinaryProtocolServer(cacheService, settings);
+        client = new BinaryCacheClient("127.0.0.1", server.getPort());
+        for (long id = 1; id <= keySpace; id++) {
+            client.put(new MyEntity(id, "entity-" + id)).join();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        server.close();
+        cacheService.onDestroy();
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Object getBatch(Keys keys) {
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[pipelineDepth];
+        for (int i = 0; i < pipelineDepth; i++) {
+            calls[i] = client.get(1 + keys.random.nextInt(keySpace));
+        }
+        return CompletableFuture.allOf(calls).join();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.cacheservice.benchmark;
+
+import com.example.cacheservice.CacheserviceApplication;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.cache.eviction.EvictionPolicyType;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.repository.MyEntityRepository;
+import com.example.cacheservice.service.CacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of {@link CacheServiceImpl} under a mix of {@code get}/{@code add}/{@code invalidate}
+ * calls from several threads. The key space is larger than the cache, so the mix also exercises
+ * loading and eviction.
+ * <p>
+ * {@code backend=STUB} keeps the repository in a map so only the cache is measured; {@code backend=H2}
+ * goes through the real JPA repository against the in-memory database. Removals are modelled as
+ * invalidations so that every id stays in the table and both backends run the same workload: after a
+ * real delete, saving the id again inserts the row under a newly generated id on H2, and the seeded id
+ * would only miss for the rest of the iteration. The table is reseeded and the cache cleared before
+ * every iteration.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheServiceBenchmark {
+
+    /** Share of calls, in percent, that are {@code get}, {@code add} and {@code invalidate}. */
+    public enum Workload {
+        READ_HEAVY(95, 4),
+        WRITE_HEAVY(40, 50);
+
+        final int getPercent;
+        final int addPercent;
+
+        Workload(int getPercent, int addPercent) {
+            this.getPercent = getPercent;
+            this.addPercent = addPercent;
+        }
+    }
+
+    public enum KeyDistribution {
+        UNIFORM,
+        /** Zipf with exponent 0.99, as in YCSB: a few ids take most of the traffic. */
+        ZIPFIAN
+    }
+
+    public enum Backend {
+        STUB,
+        H2
+    }
+
+    private static final int OP_GET = 0;
+    private static final int OP_ADD = 1;
+    private static final int OP_INVALIDATE = 2;
+    private static final int SAMPLES = 1 << 16;
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    @Param({"STUB", "H2"})
+    public Backend backend;
+
+    @Param({"READ_HEAVY", "WRITE_HEAVY"})
+    public Workload workload;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"LRU"})
+    public EvictionPolicyType policy;
+
+    @Param({"1000"})
+    public int maxSize;
+
+    @Param({"10000"})
+    public int keySpace;
+
+    private ConfigurableApplicationContext context;
+    private MyEntityRepository repository;
+    private JdbcTemplate jdbc;
+    private CacheServiceImpl cacheService;
+    private String[] names;
+    private double[] cumulative;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        if (backend == Backend.H2) {
+            // Command line arguments, so they win over application.yml
+            context = new SpringApplicationBuilder(CacheserviceApplication.class)
+                    .run("--server.port=0", "--spring.jpa.show-sql=false", "--spring.h2.console.enabled=false",
+                            "--logging.level.root=WARN", "--logging.level.com.example.cacheservice=OFF",
+                            "--logging.level.ApplicationLogger=OFF");
+            repository = context.getBean(MyEntityRepository.class);
+            jdbc = context.getBean(JdbcTemplate.class);
+        } else {
+            repository = StubRepository.create();
+        }
+
+        CacheProperties properties = CacheProperties.of(maxSize, 60000L);
+        properties.getEviction().setPolicy(policy);
+        cacheService = new CacheServiceImpl(repository, properties, new SimpleMeterRegistry());
+
+        names = new String[keySpace + 1];
+        for (int id = 1; id <= keySpace; id++) {
+            names[id] = "entity-" + id;
+        }
+        if (distribution == KeyDistribution.ZIPFIAN) {
+            cumulative = zipfCumulative(keySpace);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reseed() {
+        cacheService.clear();
+        List<MyEntity> rows = new ArrayList<>(keySpace);
+        for (int id = 1; id <= keySpace; id++) {
+            rows.add(new MyEntity((long) id, names[id]));
+        }
+        if (jdbc != null) {
+            jdbc.update("DELETE FROM MY_ENTITY");
+            // A null version would fail every later save's optimistic lock check
+            jdbc.batchUpdate("INSERT INTO MY_ENTITY (ID, NAME, VERSION) VALUES (?, ?, 0)", rows, 1000,
+                    (ps, entity) -> {
+                        ps.setLong(1, entity.getId());
+                        ps.setString(2, entity.getName());
+                    });
+            // Keep generated ids clear of the seeded range
+            jdbc.execute("ALTER TABLE MY_ENTITY ALTER COLUMN ID RESTART WITH " + (keySpace + 1));
+        } else {
+            repository.deleteAll();
+            repository.saveAll(rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        cacheService.onDestroy();
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /** Pre-drawn ids and operations, so the measured loop does no random number generation. */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private long[] keys;
+        private byte[] ops;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(CacheServiceBenchmark benchmark, ThreadParams threads) {
+            SplittableRandom random = new SplittableRandom(31L * threads.getThreadIndex() + 17);
+            keys = new long[SAMPLES];
+            ops = new byte[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                keys[i] = benchmark.nextKey(random);
+                int roll = random.nextInt(100);
+                Workload workload = benchmark.workload;
+                ops[i] = (byte) (roll < workload.getPercent ? OP_GET
+                        : roll < workload.getPercent + workload.addPercent ? OP_ADD : OP_INVALIDATE);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object mixed(ThreadState state) throws CacheException {
+        int i = state.cursor++ & (SAMPLES - 1);
+        long id = state.keys[i];
+        switch (state.ops[i]) {
+            case OP_ADD:
+                // A fresh instance per call: saving stamps the row's version on the entity passed in
+                MyEntity entity = new MyEntity(id, names[(int) id]);
+                cacheService.add(entity);
+                return entity;
+            case OP_INVALIDATE:
+                List<Long> ids = List.of(id);
+                cacheService.invalidateAll(ids);
+                return ids;
+            default:
+                return cacheService.get(new MyEntity(id, null));
+        }
+    }
+
+    private long nextKey(SplittableRandom random) {
+        if (cumulative == null) {
+            return 1 + random.nextInt(keySpace);
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return 1 + (index >= 0 ? index : Math.min(-index - 1, keySpace - 1));
+    }
+
+    private static double[] zipfCumulative(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, ZIPF_EXPONENT);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+}
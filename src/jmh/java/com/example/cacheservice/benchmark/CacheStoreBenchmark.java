@@ -0,0 +1,66 @@
+package com.example.cacheservice.benchmark;
+
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.entity.MyEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit path of {@link ConcurrentCacheStore} on its own, without the service or a repository.
+ * <p>
+ * Every key is resident, so each call is a lookup plus an access record. Run it with the GC profiler
+ * to check that a hit allocates nothing ({@code gc.alloc.rate.norm} close to 0 B/op):
+ * {@code mvn -P benchmark -DskipTests verify -Djmh.threads=1 -Djmh.args="CacheStoreBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheStoreBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"1000000"})
+    public int size;
+
+    private ConcurrentCacheStore store;
+    private long[] keys;
+
+    @Setup
+    public void setUp() {
+        store = new ConcurrentCacheStore(size, TimeUnit.HOURS.toMillis(1));
+        for (long id = 0; id < size; id++) {
+            store.put(new MyEntity(id, "entity-" + id));
+        }
+        // Ids far beyond the small Long cache, so any boxing on the hit path would show up as allocation
+        SplittableRandom random = new SplittableRandom(7);
+        keys = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            keys[i] = random.nextLong(size);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public MyEntity getHit(Cursor cursor) {
+        return store.getIfPresent(keys[cursor.next++ & (SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cacheservice.benchmark;
+
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MyEntityRepository} backed by a {@link ConcurrentHashMap}, so benchmarks can measure the
+ * cache itself without JPA or mock bookkeeping in the way. Only the methods the cache service calls
+ * are implemented; anything else throws.
+ */
+final class StubRepository implements InvocationHandler {
+
+    private final ConcurrentHashMap<Long, MyEntity> rows = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private StubRepository() {
+    }
+
+    static MyEntityRepository create() {
+        return (MyEntityRepository) Proxy.newProxyInstance(MyEntityRepository.class.getClassLoader(),
+                new Class<?>[]{MyEntityRepository.class}, new StubRepository());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "save":
+                return save((MyEntity) args[0]);
+            case "saveAll": {
+                List<MyEntity> saved = new ArrayList<>();
+                for (MyEntity entity : (Iterable<MyEntity>) args[0]) {
+                    saved.add(save(entity));
+                }
+                return saved;
+            }
+            case "findById":
+                return Optional.ofNullable(rows.get((Long) args[0]));
+            case "findAllById": {
+                List<MyEntity> found = new ArrayList<>();
+                for (Long id : (Iterable<Long>) args[0]) {
+                    MyEntity entity = rows.get(id);
+                    if (entity != null) {
+                        found.add(entity);
+                    }
+                }
+                return found;
+            }
+            case "findVersionById": {
+                MyEntity entity = rows.get((Long) args[0]);
+                return Optional.ofNullable(entity == null ? null : entity.getVersion());
+            }
+            case "findVersionsByIdIn": {
+                List<Object[]> versions = new ArrayList<>();
+                for (Long id : (Iterable<Long>) args[0]) {
+                    MyEntity entity = rows.get(id);
+                    if (entity != null) {
+                        versions.add(new Object[]{id, entity.getVersion()});
+                    }
+                }
+                return versions;
+            }
+            case "existsById":
+                return rows.containsKey((Long) args[0]);
+            case "deleteById":
+                rows.remove((Long) args[0]);
+                return null;
+            case "deleteAllByIdInBatch":
+            case "deleteAllById":
+                for (Long id : (Iterable<Long>) args[0]) {
+                    rows.remove(id);
+                }
+                return null;
+            case "deleteAll":
+                rows.clear();
+                return null;
+            case "count":
+                return (long) rows.size();
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "StubRepository(" + rows.size() + " rows)";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    /** Stores a copy with the next version, as a JPA merge returns a managed copy rather than the argument. */
+    private MyEntity save(MyEntity entity) {
+        Long id = entity.getId() != null ? entity.getId() : nextId.getAndIncrement();
+        long version = entity.getVersion() == null ? 0L : entity.getVersion() + 1;
+        MyEntity stored = new MyEntity(id, entity.getName(), version);
+        rows.put(id, stored);
+        return stored;
+    }
+}
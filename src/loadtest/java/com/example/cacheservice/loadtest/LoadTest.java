@@ -0,0 +1,351 @@
+package com.example.cacheservice.loadtest;
+
+import com.example.cacheservice.CacheserviceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load generator for the REST API, so Tomcat, Jackson, JPA and H2 are all measured.
+ * <p>
+ * Traffic follows an open model: requests are started at a constant arrival rate whether or not
+ * earlier ones have completed, and each latency is measured from the moment the request was due,
+ * not from when it was actually sent, so a stalled server shows up in the tail instead of slowing the
+ * generator down (no coordinated omission). If {@code maxInFlight} requests are already outstanding
+ * the request is dropped and counted rather than queued.
+ * <p>
+ * The keyspace is seeded through the batch endpoint first. Operations are {@code get} and
+ * {@code update} of a seeded key, chosen with Zipf skew, {@code add} of a new entity, and
+ * {@code remove} of an entity created by an earlier add (an add is sent instead while there is none).
+ * After a warm-up whose results are discarded, latencies are recorded in HdrHistograms and written as
+ * a fixed-format text report, meant to be diffed between builds, plus one percentile distribution
+ * ({@code .hgrm}) per operation.
+ * <p>
+ * Driven by system properties, all optional: {@code loadtest.baseUrl} (default
+ * {@code http://localhost:8080}), {@code loadtest.startApp} (start the application in this JVM on a
+ * free port instead; convenient, but it then shares the CPU with the generator),
+ * {@code loadtest.region}, {@code loadtest.rate} (requests per second), {@code loadtest.warmupSeconds},
+ * {@code loadtest.durationSeconds}, {@code loadtest.mix} (e.g. {@code get=80,update=10,add=5,remove=5}),
+ * {@code loadtest.keySpace}, {@code loadtest.skew}, {@code loadtest.maxInFlight},
+ * {@code loadtest.timeoutMillis}, {@code loadtest.seed} and {@code loadtest.report}.
+ */
+public final class LoadTest {
+
+    enum Operation {
+        GET, UPDATE, ADD, REMOVE
+    }
+
+    private static final int SEED_BATCH = 500;
+
+    private final Settings settings;
+    private final String api;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Semaphore inFlight;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    // Ids created by adds, for removes to delete without shrinking the seeded keyspace
+    private final ConcurrentLinkedQueue<Long> removable = new ConcurrentLinkedQueue<>();
+
+    private LoadTest(Settings settings, String baseUrl) {
+        this.settings = settings;
+        this.api = baseUrl + (settings.region == null ? "/api/cache" : "/api/cache/regions/" + settings.region);
+        // Plain HTTP/1.1, as most clients use it; the default would first try an h2c upgrade
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.inFlight = new Semaphore(settings.maxInFlight);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        ConfigurableApplicationContext app = null;
+        String baseUrl = settings.baseUrl;
+        if (settings.startApp) {
+            // As arguments, so they win over application.yml
+            app = new SpringApplicationBuilder(CacheserviceApplication.class)
+                    .run("--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+            baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            new LoadTest(settings, baseUrl).run();
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        System.out.printf("Seeding %d entities through %s%n", settings.keySpace, api);
+        ZipfKeys keys = new ZipfKeys(seed(), settings.skew, settings.seed);
+        SplittableRandom random = new SplittableRandom(settings.seed + 1);
+
+        double nanosPerRequest = 1e9 / settings.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        System.out.printf("Warming up for %d s, then measuring for %d s at %d requests/s%n",
+                settings.warmupSeconds, settings.durationSeconds, settings.rate);
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * nanosPerRequest);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(settings.pick(random.nextInt(100)), keys, due, due >= measureFrom);
+        }
+        // Let the stragglers finish, so their latencies count
+        if (!inFlight.tryAcquire(settings.maxInFlight, settings.timeoutMillis, TimeUnit.MILLISECONDS)) {
+            System.out.println("Gave up waiting for requests still in flight");
+        }
+        writeReport(baseUrlOf(api));
+    }
+
+    private long[] seed() throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>(settings.keySpace);
+        for (int from = 0; from < settings.keySpace; from += SEED_BATCH) {
+            List<Map<String, String>> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(settings.keySpace, from + SEED_BATCH); i++) {
+                batch.add(Map.of("name", "seed-" + i));
+            }
+            HttpResponse<String> response = client.send(json("POST", "/batch/add", batch),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with status " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode entity : mapper.readTree(response.body())) {
+                ids.add(entity.get("id").asLong());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void send(Operation operation, ZipfKeys keys, long due, boolean measured) {
+        Long removableId = null;
+        if (operation == Operation.REMOVE) {
+            removableId = removable.poll();
+            if (removableId == null) {
+                operation = Operation.ADD;
+            }
+        }
+        Stats target = stats.get(operation);
+        if (!inFlight.tryAcquire()) {
+            if (measured) {
+                target.dropped.increment();
+            }
+            return;
+        }
+        HttpRequest request;
+        switch (operation) {
+            case GET:
+                request = request("/get/" + keys.next()).GET().build();
+                break;
+            case UPDATE:
+                long id = keys.next();
+                request = json("POST", "/add", Map.of("id", id, "name", "updated-" + id));
+                break;
+            case ADD:
+                request = json("POST", "/add", Map.of("name", "added"));
+                break;
+            default:
+                request = json("DELETE", "/remove", Map.of("id", removableId));
+                break;
+        }
+        boolean adding = operation == Operation.ADD;
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, ex) -> {
+            long latency = System.nanoTime() - due;
+            inFlight.release();
+            boolean ok = ex == null && response.statusCode() < 400;
+            if (ok && adding) {
+                rememberAdded(response.body());
+            }
+            if (measured) {
+                target.latency.recordValue(latency);
+                if (!ok) {
+                    target.errors.increment();
+                }
+            }
+        });
+    }
+
+    private void rememberAdded(String body) {
+        try {
+            removable.add(mapper.readTree(body).get("id").asLong());
+        } catch (IOException ex) {
+            // Only costs a future remove its target
+        }
+    }
+
+    private HttpRequest json(String method, String path, Object body) {
+        try {
+            return request(path).header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(api + path)).timeout(Duration.ofMillis(settings.timeoutMillis));
+    }
+
+    private void writeReport(String target) throws IOException {
+        Path report = Paths.get(settings.report).toAbsolutePath();
+        Files.createDirectories(report.getParent());
+        String base = report.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        Histogram all = new Histogram(3);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report), true, StandardCharsets.UTF_8)) {
+            out.printf("# cacheservice load test against %s%n", target);
+            out.printf("# rate=%d/s warmup=%ds duration=%ds mix=%s keySpace=%d skew=%s maxInFlight=%d seed=%d%n",
+                    settings.rate, settings.warmupSeconds, settings.durationSeconds, settings.mix, settings.keySpace,
+                    settings.skew, settings.maxInFlight, settings.seed);
+            out.printf("%-8s %9s %7s %8s %9s %9s %9s %9s %9s %9s%n", "op", "count", "errors", "dropped", "rate/s",
+                    "p50_us", "p90_us", "p99_us", "p999_us", "max_us");
+            long errors = 0;
+            long dropped = 0;
+            for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                String name = entry.getKey().name().toLowerCase(Locale.ROOT);
+                Stats op = entry.getValue();
+                Histogram histogram = op.latency.getIntervalHistogram();
+                all.add(histogram);
+                errors += op.errors.sum();
+                dropped += op.dropped.sum();
+                printRow(out, name, histogram, op.errors.sum(), op.dropped.sum());
+                if (histogram.getTotalCount() > 0) {
+                    try (PrintStream hgrm = new PrintStream(
+                            Files.newOutputStream(report.resolveSibling(base + "-" + name + ".hgrm")), true,
+                            StandardCharsets.UTF_8)) {
+                        histogram.outputPercentileDistribution(hgrm, 1000.0);
+                    }
+                }
+            }
+            printRow(out, "all", all, errors, dropped);
+        }
+        System.out.println(Files.readString(report));
+        System.out.println("Report written to " + report);
+    }
+
+    private void printRow(PrintStream out, String name, Histogram histogram, long errors, long dropped) {
+        out.printf(Locale.ROOT, "%-8s %9d %7d %8d %9.1f %9d %9d %9d %9d %9d%n", name, histogram.getTotalCount(),
+                errors, dropped, histogram.getTotalCount() / (double) settings.durationSeconds,
+                micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMaxValue()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static String baseUrlOf(String api) {
+        return api.replaceFirst("/api/cache.*$", "");
+    }
+
+    private static final class Stats {
+
+        // Recorders take values from many threads without locking; sized automatically
+        final Recorder latency = new Recorder(3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+    }
+
+    private static final class Settings {
+
+        String baseUrl;
+        boolean startApp;
+        String region;
+        int rate;
+        int warmupSeconds;
+        int durationSeconds;
+        String mix;
+        int keySpace;
+        double skew;
+        int maxInFlight;
+        long timeoutMillis;
+        long seed;
+        String report;
+        // Operation for each of the 100 percentage points of the mix
+        final Operation[] byPercent = new Operation[100];
+
+        static Settings fromSystemProperties() {
+            Settings settings = new Settings();
+            settings.baseUrl = property("loadtest.baseUrl", "http://localhost:8080");
+            settings.startApp = Boolean.parseBoolean(property("loadtest.startApp", "false"));
+            settings.region = property("loadtest.region", null);
+            settings.rate = Integer.parseInt(property("loadtest.rate", "1000"));
+            settings.warmupSeconds = Integer.parseInt(property("loadtest.warmupSeconds", "10"));
+            settings.durationSeconds = Integer.parseInt(property("loadtest.durationSeconds", "30"));
+            settings.mix = property("loadtest.mix", "get=80,update=10,add=5,remove=5");
+            settings.keySpace = Integer.parseInt(property("loadtest.keySpace", "10000"));
+            settings.skew = Double.parseDouble(property("loadtest.skew", "0.99"));
+            settings.maxInFlight = Integer.parseInt(property("loadtest.maxInFlight", "512"));
+            settings.timeoutMillis = Long.parseLong(property("loadtest.timeoutMillis", "10000"));
+            settings.seed = Long.parseLong(property("loadtest.seed", "42"));
+            settings.report = property("loadtest.report", "target/loadtest-report.txt");
+            if (settings.rate <= 0 || settings.durationSeconds <= 0 || settings.keySpace <= 0) {
+                throw new IllegalArgumentException("loadtest.rate, durationSeconds and keySpace must be positive");
+            }
+            settings.parseMix();
+            return settings;
+        }
+
+        Operation pick(int percent) {
+            return byPercent[percent];
+        }
+
+        private void parseMix() {
+            int filled = 0;
+            for (String part : mix.split(",")) {
+                String[] pair = part.trim().split("=");
+                Operation operation = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+                int share = Integer.parseInt(pair[1].trim());
+                for (int i = 0; i < share && filled < 100; i++) {
+                    byPercent[filled++] = operation;
+                }
+            }
+            if (filled != 100) {
+                throw new IllegalArgumentException("loadtest.mix must add up to 100: " + mix);
+            }
+        }
+
+        // Maven passes unset properties through as empty strings
+        private static String property(String name, String defaultValue) {
+            String value = System.getProperty(name);
+            return value == null || value.isBlank() ? defaultValue : value.trim();
+        }
+    }
+}
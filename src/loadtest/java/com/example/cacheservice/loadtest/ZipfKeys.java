@@ -0,0 +1,37 @@
+package com.example.cacheservice.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks keys with Zipf-distributed popularity: the key at rank {@code k} is drawn with probability
+ * proportional to {@code 1 / (k + 1)^skew}, so a skew of 0 is uniform and around 1 a few keys take
+ * most of the traffic. Draws are reproducible for a given seed.
+ */
+final class ZipfKeys {
+
+    private final long[] keys;
+    private final double[] cumulative;
+    private final SplittableRandom random;
+
+    ZipfKeys(long[] keys, double skew, long seed) {
+        this.keys = keys;
+        this.cumulative = new double[keys.length];
+        double total = 0;
+        for (int rank = 0; rank < keys.length; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < keys.length; rank++) {
+            cumulative[rank] /= total;
+        }
+        this.random = new SplittableRandom(seed);
+    }
+
+    /** Not thread-safe; only the dispatching thread draws keys. */
+    long next() {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        // A miss returns -(insertion point) - 1, and the insertion point is the rank drawn
+        return keys[Math.min(rank < 0 ? -rank - 1 : rank, keys.length - 1)];
+    }
+}
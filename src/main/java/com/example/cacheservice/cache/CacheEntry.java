@@ -0,0 +1,117 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.cache.eviction.EvictionNode;
+import com.example.cacheservice.entity.MyEntity;
+
+/**
+ * A cached value plus the bookkeeping the store needs for it.
+ * <p>
+ * The eviction policy's and timer wheel's links are only touched while the store's eviction lock is held;
+ * the timestamps are written racily by readers, which is fine for recency/expiry purposes.
+ * <p>
+ * Each entry carries its own lifetime and deadline, so entries written with different TTLs, or under an
+ * {@link Expiry} that varies per entity, expire independently.
+ */
+public final class CacheEntry extends EvictionNode {
+
+    private final MyEntity entity;
+    private final long writeTime;
+    private final int weight;
+    private final long ttlMillis;
+    private volatile long lastAccessTime;
+    private volatile long deadline;
+    private volatile boolean retired;
+
+    // Guarded by the store's eviction lock
+    CacheEntry timerPrev;
+    CacheEntry timerNext;
+    private long expiresAt;
+
+    CacheEntry(long key, MyEntity entity) {
+        this(key, entity, 1, Expiry.NEVER);
+    }
+
+    CacheEntry(long key, MyEntity entity, int weight, long ttlMillis) {
+        this(key, entity, weight, ttlMillis, System.currentTimeMillis());
+    }
+
+    private CacheEntry(long key, MyEntity entity, int weight, long ttlMillis, long writeTime) {
+        this(key, entity, weight, writeTime, writeTime, ttlMillis, deadline(writeTime, ttlMillis));
+    }
+
+    /** Recreates an entry with the timestamps and lifetime it had when it was written to a snapshot. */
+    CacheEntry(long key, MyEntity entity, int weight, long writeTime, long lastAccessTime, long ttlMillis,
+               long deadline) {
+        super(key);
+        this.entity = entity;
+        this.weight = weight;
+        this.writeTime = writeTime;
+        this.lastAccessTime = lastAccessTime;
+        this.ttlMillis = ttlMillis;
+        this.deadline = deadline;
+    }
+
+    public MyEntity getEntity() {
+        return entity;
+    }
+
+    @Override
+    public int getWeight() {
+        return weight;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /** The lifetime the entry was written with, in milliseconds. */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /** When the entry expires, in epoch milliseconds; {@link Long#MAX_VALUE} if it never does. */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /** When the timer wheel will next look at this entry; not necessarily when it expires. */
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /** Records a read, moving the deadline if the expiry says so. */
+    void recordRead(long now, Expiry expiry) {
+        this.lastAccessTime = now;
+        long remaining = deadline - now;
+        long next = expiry.expireAfterRead(entity, ttlMillis, remaining);
+        if (next != remaining) {
+            this.deadline = deadline(now, next);
+        }
+    }
+
+    boolean isExpired(long now) {
+        return now - deadline > 0;
+    }
+
+    /** {@code now + millis}, saturating so that {@link Expiry#NEVER} stays in the future. */
+    static long deadline(long now, long millis) {
+        return millis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + millis;
+    }
+
+    /** An entry is retired once it has been removed from the map; it must not be (re)linked afterwards. */
+    boolean isRetired() {
+        return retired;
+    }
+
+    void retire() {
+        this.retired = true;
+    }
+}
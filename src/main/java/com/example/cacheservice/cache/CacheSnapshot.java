@@ -0,0 +1,211 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a {@link ConcurrentCacheStore}, so a restarted service can start warm.
+ * <p>
+ * Layout: a fixed header (magic, format version, entry count, CRC32 of the body, body length,
+ * creation time) followed by one record per entry: record length (int), write time, last access
+ * time, lifetime and deadline (longs), then the {@link EntityCodec} payload. Records are ordered from least to
+ * most recently accessed. Snapshots are written to a temporary file and moved into place, so a
+ * crash mid-write leaves the previous snapshot intact.
+ * <p>
+ * Loading maps the file, verifies the header and checksum, and decodes records in parallel.
+ * Nothing is inserted into the store unless the whole file decodes cleanly.
+ */
+public final class CacheSnapshot {
+
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    // 2: entities carry their version; 3: records carry their lifetime and deadline
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 8;
+    private static final int RECORD_HEADER_BYTES = 4 + 8 + 8 + 8 + 8;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Writes the live, unexpired entries of the store to {@code file}, replacing any previous snapshot.
+     *
+     * @return number of entries written
+     */
+    public static int write(ConcurrentCacheStore store, Path file) throws IOException {
+        long now = System.currentTimeMillis();
+        List<CacheEntry> entries = new ArrayList<>(store.size());
+        for (CacheEntry entry : store.entries()) {
+            if (!entry.isRetired() && !entry.isExpired(now)) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(CacheEntry::getLastAccessTime));
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        long bodyBytes = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            for (CacheEntry entry : entries) {
+                byte[] nameBytes = EntityCodec.nameBytes(entry.getEntity());
+                int payload = EntityCodec.encodedSize(nameBytes);
+                int recordBytes = RECORD_HEADER_BYTES + payload;
+                if (buffer.remaining() < recordBytes) {
+                    bodyBytes += flush(buffer, channel, crc);
+                    if (buffer.capacity() < recordBytes) {
+                        buffer = ByteBuffer.allocate(recordBytes);
+                    }
+                }
+                buffer.putInt(recordBytes - 4);
+                buffer.putLong(entry.getWriteTime());
+                buffer.putLong(entry.getLastAccessTime());
+                buffer.putLong(entry.getTtlMillis());
+                buffer.putLong(entry.getDeadline());
+                EntityCodec.encode(entry.getEntity(), nameBytes, buffer);
+            }
+            bodyBytes += flush(buffer, channel, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt((int) crc.getValue())
+                    .putLong(bodyBytes).putLong(now).flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries.size();
+    }
+
+    /**
+     * Reads a snapshot into the store, skipping entries that have expired in the meantime.
+     *
+     * @param parallelism threads used to decode records
+     * @return number of entries restored; 0 if the file does not exist
+     * @throws IOException if the file is unreadable, corrupt or from an incompatible version;
+     *                     the store is left untouched in that case
+     */
+    public static int load(ConcurrentCacheStore store, Path file, int parallelism) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<CacheEntry> entries = decode(mapped, parallelism, store.getWeigher());
+            return store.restoreAll(entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Snapshot is truncated or corrupt", ex);
+        }
+    }
+
+    private static List<CacheEntry> decode(ByteBuffer mapped, int parallelism, Weigher weigher) throws IOException {
+        int magic = mapped.getInt();
+        int version = mapped.getInt();
+        int count = mapped.getInt();
+        int checksum = mapped.getInt();
+        long bodyBytes = mapped.getLong();
+        mapped.getLong(); // creation time, informational
+        if (magic != MAGIC) {
+            throw new IOException("Not a cache snapshot");
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        if (count < 0 || bodyBytes != mapped.capacity() - HEADER_BYTES
+                || count > bodyBytes / (RECORD_HEADER_BYTES + EntityCodec.encodedSize(null))) {
+            throw new IOException("Snapshot header does not match the file size");
+        }
+
+        ByteBuffer body = mapped.slice();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+
+        // Records are variable-length: find their offsets first, then decode them independently
+        int[] offsets = new int[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = position;
+            int recordBytes = body.getInt(position);
+            if (recordBytes < RECORD_HEADER_BYTES - 4 || position + 4L + recordBytes > body.limit()) {
+                throw new IOException("Snapshot record " + i + " is out of bounds");
+            }
+            position += 4 + recordBytes;
+        }
+        if (position != body.limit()) {
+            throw new IOException("Snapshot has trailing bytes");
+        }
+
+        CacheEntry[] entries = new CacheEntry[count];
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> entries[i] = decodeRecord(body, offsets[i], weigher))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading snapshot", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Snapshot is corrupt", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return Arrays.asList(entries);
+    }
+
+    private static CacheEntry decodeRecord(ByteBuffer body, int offset, Weigher weigher) {
+        ByteBuffer record = body.duplicate();
+        record.position(offset + 4);
+        long writeTime = record.getLong();
+        long lastAccessTime = record.getLong();
+        long ttlMillis = record.getLong();
+        long deadline = record.getLong();
+        MyEntity entity = EntityCodec.decode(record);
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Snapshot record for entity " + entity.getId() + " has no lifetime");
+        }
+        return new CacheEntry(entity.getId(), entity, weigher.weigh(entity), writeTime, lastAccessTime, ttlMillis,
+                deadline);
+    }
+
+    private static long flush(ByteBuffer buffer, FileChannel channel, CRC32 crc) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return bytes;
+    }
+}
@@ -0,0 +1,577 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.cache.eviction.EvictionNode;
+import com.example.cacheservice.cache.eviction.EvictionPolicy;
+import com.example.cacheservice.cache.eviction.LruPolicy;
+import com.example.cacheservice.entity.MyEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, concurrent in-memory storage for {@link MyEntity} values keyed by id.
+ * <p>
+ * Lookups go straight to a primitive-keyed {@link LongEntryMap}, never block and allocate nothing; hits are
+ * recorded in a {@link ReadBuffer} and replayed into the {@link EvictionPolicy} in batches. Writes take
+ * the eviction lock only for the in-memory bookkeeping. Expiry is tracked in a
+ * {@link TimerWheel}, so periodic cleanup only touches entries that are due. The store never talks to the
+ * database: entries it evicts are handed back to the caller, which persists them after
+ * every lock has been released.
+ * <p>
+ * Capacity is measured by a {@link Weigher}: by default every entry weighs one and the policy's
+ * maximum is an entry count, while {@link Weigher#retainedSize()} turns it into a heap budget in bytes.
+ * An optional {@link RemovalListener} hears about every entity that leaves, so structures derived from
+ * the cached set can follow it.
+ * <p>
+ * Lifetimes come from an {@link Expiry}, after access unless told otherwise, and can be overridden per
+ * entry when it is written.
+ */
+public class ConcurrentCacheStore {
+
+    private final Expiry expiry;
+    private final LongEntryMap data;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final EvictionPolicy policy;
+    private final Weigher weigher;
+    private final RemovalListener removalListener;
+    private final ReadBuffer<CacheEntry> readBuffer = new ReadBuffer<>();
+    private final TimerWheel timerWheel = new TimerWheel(System.currentTimeMillis());
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    // Copied from the policy whenever the eviction lock is released, so readers need no lock
+    private volatile long weightedSize;
+    private volatile long peakWeightedSize;
+
+    public ConcurrentCacheStore(int maxSize, long expirationMillis) {
+        this(new LruPolicy(maxSize), expirationMillis);
+    }
+
+    public ConcurrentCacheStore(EvictionPolicy policy, long expirationMillis) {
+        this(policy, Weigher.singleton(), expirationMillis);
+    }
+
+    public ConcurrentCacheStore(EvictionPolicy policy, Weigher weigher, long expirationMillis) {
+        this(policy, weigher, expirationMillis, RemovalListener.none());
+    }
+
+    public ConcurrentCacheStore(EvictionPolicy policy, Weigher weigher, long expirationMillis,
+                                RemovalListener removalListener) {
+        this(policy, weigher, Expiry.afterAccess(expirationMillis), removalListener);
+    }
+
+    public ConcurrentCacheStore(EvictionPolicy policy, Weigher weigher, Expiry expiry,
+                                RemovalListener removalListener) {
+        if (policy.maximum() <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.policy = policy;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+        this.expiry = expiry;
+        this.data = new LongEntryMap((int) Math.min(policy.maximum(), 1 << 16));
+    }
+
+    /**
+     * Returns the cached entity, or {@code null} if it is absent or expired.
+     * Expired entries found here are removed on the spot.
+     */
+    public MyEntity getIfPresent(long id) {
+        CacheEntry entry = getEntryIfPresent(id);
+        return entry == null ? null : entry.getEntity();
+    }
+
+    /**
+     * Like {@link #getIfPresent} but returns the entry itself, for callers that need its
+     * timestamps. Records the access.
+     */
+    public CacheEntry getEntryIfPresent(long id) {
+        CacheEntry entry = data.get(id);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.isExpired(now)) {
+            if (data.remove(id, entry)) {
+                retire(entry);
+                expirationCount.increment();
+                removalListener.onRemoval(entry.getEntity(), null);
+            }
+            return null;
+        }
+        entry.recordRead(now, expiry);
+        if (readBuffer.offer(entry)) {
+            tryDrainReadBuffer();
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached entities among the given ids; absent and expired ids are left out.
+     */
+    public Map<Long, MyEntity> getAllPresent(Collection<Long> ids) {
+        Map<Long, MyEntity> result = new HashMap<>();
+        for (Long id : ids) {
+            MyEntity entity = getIfPresent(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserts or replaces the value for the entity's id.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> put(MyEntity entity) {
+        return put(entity, lifetime(entity));
+    }
+
+    /**
+     * Inserts or replaces the value for the entity's id, to live {@code ttlMillis} instead of what the
+     * expiry would give it. Whether reads extend that lifetime is still up to the expiry.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> put(MyEntity entity, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("TTL must be positive, was " + ttlMillis);
+        }
+        long id = entity.getId();
+        CacheEntry entry = newEntry(entity, ttlMillis);
+        CacheEntry previous = data.put(id, entry);
+        if (previous != null) {
+            previous.retire();
+            removalListener.onRemoval(previous.getEntity(), entity);
+        }
+        return afterWrite(entry, previous);
+    }
+
+    /**
+     * Inserts the entity only if no live value is cached for its id. Used for values
+     * loaded from the database so a slow load cannot overwrite a newer write.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> putIfAbsent(MyEntity entity) {
+        long id = entity.getId();
+        CacheEntry entry = newEntry(entity);
+        CacheEntry existing = data.putIfAbsent(id, entry);
+        if (existing == null) {
+            return afterWrite(entry, null);
+        }
+        if (existing.isExpired(System.currentTimeMillis()) && data.replace(id, existing, entry)) {
+            existing.retire();
+            removalListener.onRemoval(existing.getEntity(), entity);
+            return afterWrite(entry, existing);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Inserts or replaces all the entities, taking the eviction lock once for the whole batch.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> putAll(Collection<MyEntity> entities) {
+        List<CacheEntry> entries = new ArrayList<>(entities.size());
+        List<CacheEntry> replaced = new ArrayList<>();
+        for (MyEntity entity : entities) {
+            CacheEntry entry = newEntry(entity);
+            CacheEntry previous = data.put(entity.getId(), entry);
+            if (previous != null) {
+                previous.retire();
+                removalListener.onRemoval(previous.getEntity(), entity);
+                replaced.add(previous);
+            }
+            entries.add(entry);
+        }
+        return afterWriteAll(entries, replaced);
+    }
+
+    /**
+     * Batch form of {@link #putIfAbsent}, taking the eviction lock once for the whole batch.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> putAllIfAbsent(Collection<MyEntity> entities) {
+        List<CacheEntry> entries = new ArrayList<>(entities.size());
+        List<CacheEntry> replaced = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (MyEntity entity : entities) {
+            long id = entity.getId();
+            CacheEntry entry = newEntry(entity);
+            CacheEntry existing = data.putIfAbsent(id, entry);
+            if (existing == null) {
+                entries.add(entry);
+            } else if (existing.isExpired(now) && data.replace(id, existing, entry)) {
+                existing.retire();
+                removalListener.onRemoval(existing.getEntity(), entity);
+                replaced.add(existing);
+                entries.add(entry);
+            }
+        }
+        return afterWriteAll(entries, replaced);
+    }
+
+    /**
+     * Removes the cached values for all the ids, taking the eviction lock once.
+     *
+     * @return number of entries removed
+     */
+    public int removeAll(Collection<Long> ids) {
+        List<CacheEntry> removed = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CacheEntry entry = data.remove(id);
+            if (entry != null) {
+                entry.retire();
+                removalListener.onRemoval(entry.getEntity(), null);
+                removed.add(entry);
+            }
+        }
+        if (!removed.isEmpty()) {
+            evictionLock.lock();
+            try {
+                removed.forEach(this::unlink);
+                updateWeightedSize();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return removed.size();
+    }
+
+    /**
+     * Replaces {@code expected} with a freshly loaded value, unless the entry has been
+     * replaced or removed since it was read. The new value keeps the lifetime the old one was written with.
+     *
+     * @return entries evicted to make room, never {@code null}
+     */
+    public List<CacheEntry> replace(CacheEntry expected, MyEntity entity) {
+        CacheEntry entry = new CacheEntry(expected.getKey(), entity, weigh(entity), expected.getTtlMillis());
+        if (!data.replace(expected.getKey(), expected, entry)) {
+            return Collections.emptyList();
+        }
+        expected.retire();
+        removalListener.onRemoval(expected.getEntity(), entity);
+        return afterWrite(entry, expected);
+    }
+
+    /**
+     * Removes the entry only if it is still the one mapped to its key.
+     */
+    public boolean remove(CacheEntry expected) {
+        if (data.remove(expected.getKey(), expected)) {
+            retire(expected);
+            removalListener.onRemoval(expected.getEntity(), null);
+            return true;
+        }
+        return false;
+    }
+
+    /** Removes the cached value for the id, returning it if there was one. */
+    public MyEntity remove(long id) {
+        CacheEntry removed = data.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        retire(removed);
+        removalListener.onRemoval(removed.getEntity(), null);
+        return removed.getEntity();
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            data.clear(CacheEntry::retire);
+            policy.clear();
+            timerWheel.clear();
+            readBuffer.drainTo(e -> { });
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Advances the expiry timer wheel and removes the entries that have expired since the
+     * last call. Entries that were read after being scheduled are simply rescheduled to
+     * their new deadline, so reads never have to touch the wheel.
+     *
+     * @return number of entries removed
+     */
+    public int expireEntries() {
+        long now = System.currentTimeMillis();
+        int[] removed = new int[1];
+        evictionLock.lock();
+        try {
+            timerWheel.advance(now, entry -> {
+                if (!entry.isExpired(now)) {
+                    entry.setExpiresAt(entry.getDeadline());
+                    timerWheel.schedule(entry);
+                } else if (data.remove(entry.getKey(), entry)) {
+                    entry.retire();
+                    policy.remove(entry);
+                    removalListener.onRemoval(entry.getEntity(), null);
+                    removed[0]++;
+                }
+            });
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+        expirationCount.add(removed[0]);
+        return removed[0];
+    }
+
+    /**
+     * Inserts entries read back from a snapshot, coldest first, so the eviction order comes out
+     * roughly as it was. Entries that have expired since, or whose id is already cached, are skipped;
+     * if there are more than fit, the coldest are left out.
+     *
+     * @return number of entries inserted
+     */
+    int restoreAll(List<CacheEntry> entries) {
+        long now = System.currentTimeMillis();
+        // Walk back from the hottest entry until the capacity is used up
+        int first = entries.size();
+        long weight = 0;
+        while (first > 0 && weight + entries.get(first - 1).getWeight() <= policy.maximum()) {
+            weight += entries.get(--first).getWeight();
+        }
+        List<CacheEntry> inserted = new ArrayList<>(entries.size() - first);
+        for (int i = first; i < entries.size(); i++) {
+            CacheEntry entry = entries.get(i);
+            if (!entry.isExpired(now) && data.putIfAbsent(entry.getKey(), entry) == null) {
+                inserted.add(entry);
+            }
+        }
+        // Anything evicted here was only just read from the snapshot and is already persisted
+        afterWriteAll(inserted, Collections.emptyList());
+        return inserted.size();
+    }
+
+    /**
+     * Passes the unexpired entities with ids in {@code [fromId, toId]} to {@code action}, in no
+     * particular order, without recording any access. The index is walked in chunks of at most
+     * {@code chunkSize} entries, each copied under one segment's read lock, so the scan needs no more
+     * memory than a chunk and never blocks writers for longer than one copy. It is weakly consistent:
+     * entries written while it runs may or may not be seen.
+     */
+    public void scan(long fromId, long toId, int chunkSize, Consumer<MyEntity> action) {
+        long now = System.currentTimeMillis();
+        data.forEachChunk(chunkSize, id -> id >= fromId && id <= toId, chunk -> {
+            for (CacheEntry entry : chunk) {
+                if (!entry.isExpired(now)) {
+                    action.accept(entry.getEntity());
+                }
+            }
+        });
+    }
+
+    /** Copy of the cached entries, for taking snapshots. */
+    List<CacheEntry> entries() {
+        return data.values();
+    }
+
+    Weigher getWeigher() {
+        return weigher;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    /** Entries evicted for capacity since the store was created. */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /** Entries removed because they expired, whether on read or by the timer wheel. */
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    /** Current capacity in weight units; an entry count unless the store was given a weigher. */
+    public long getMaximumWeight() {
+        return policy.maximum();
+    }
+
+    /**
+     * Changes the capacity at runtime. Lowering it evicts the policy's victims on the spot, under the
+     * eviction lock, so callers wanting to shrink gradually should lower it in steps.
+     *
+     * @return entries evicted to fit the new capacity, never {@code null}
+     */
+    public List<CacheEntry> setMaximumWeight(long maximum) {
+        if (maximum <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        List<CacheEntry> evicted = new ArrayList<>(0);
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            policy.setMaximum(maximum, victim -> onEvicted(victim, evicted));
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+        return evicted;
+    }
+
+    /** Total weight of the entries currently held. */
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /** Highest total weight held at any point since the store was created. */
+    public long getPeakWeightedSize() {
+        return peakWeightedSize;
+    }
+
+    /**
+     * Roughly how many more entries fit before eviction starts, judged by the average weight of the
+     * entries already held (or of an empty entity if there are none).
+     */
+    public int estimateRemainingEntries() {
+        long held = weightedSize;
+        long room = policy.maximum() - held;
+        if (room <= 0) {
+            return 0;
+        }
+        int entries = data.size();
+        long average = entries > 0 && held > 0 ? held / entries : weigh(new MyEntity(0L, null));
+        return (int) Math.min(Integer.MAX_VALUE, room / Math.max(1, average));
+    }
+
+    private List<CacheEntry> afterWrite(CacheEntry entry, CacheEntry previous) {
+        List<CacheEntry> evicted = new ArrayList<>(0);
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(entry, evicted);
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+        return evicted;
+    }
+
+    private List<CacheEntry> afterWriteAll(List<CacheEntry> entries, List<CacheEntry> replaced) {
+        if (entries.isEmpty() && replaced.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CacheEntry> evicted = new ArrayList<>(0);
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            replaced.forEach(this::unlink);
+            for (CacheEntry entry : entries) {
+                link(entry, evicted);
+            }
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+        return evicted;
+    }
+
+    private void link(CacheEntry entry, List<CacheEntry> evicted) {
+        if (entry.isRetired()) {
+            return;
+        }
+        if (entry.getWeight() > policy.maximum()) {
+            // Could never fit; admitting it would only flush everything else first
+            onEvicted(entry, evicted);
+        } else {
+            entry.setExpiresAt(entry.getDeadline());
+            timerWheel.schedule(entry);
+            policy.add(entry, victim -> onEvicted(victim, evicted));
+        }
+    }
+
+    private void unlink(CacheEntry entry) {
+        policy.remove(entry);
+        timerWheel.deschedule(entry);
+    }
+
+    private void onEvicted(EvictionNode node, List<CacheEntry> evicted) {
+        CacheEntry victim = (CacheEntry) node;
+        timerWheel.deschedule(victim);
+        if (data.remove(victim.getKey(), victim)) {
+            victim.retire();
+            evicted.add(victim);
+            evictionCount.increment();
+            removalListener.onRemoval(victim.getEntity(), null);
+        }
+    }
+
+    private void retire(CacheEntry entry) {
+        entry.retire();
+        evictionLock.lock();
+        try {
+            unlink(entry);
+            updateWeightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private CacheEntry newEntry(MyEntity entity) {
+        return newEntry(entity, lifetime(entity));
+    }
+
+    private CacheEntry newEntry(MyEntity entity, long ttlMillis) {
+        return new CacheEntry(entity.getId(), entity, weigh(entity), ttlMillis);
+    }
+
+    private long lifetime(MyEntity entity) {
+        long ttl = expiry.expireAfterWrite(entity);
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Expiry returned " + ttl + " ms for entity " + entity.getId());
+        }
+        return ttl;
+    }
+
+    private int weigh(MyEntity entity) {
+        int weight = weigher.weigh(entity);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weigher returned " + weight + " for entity " + entity.getId());
+        }
+        return weight;
+    }
+
+    // Caller holds the eviction lock
+    private void updateWeightedSize() {
+        long current = policy.weightedSize();
+        weightedSize = current;
+        if (current > peakWeightedSize) {
+            peakWeightedSize = current;
+        }
+    }
+
+    private void tryDrainReadBuffer() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(policy::recordAccess);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of {@link MyEntity}: the id and the version as longs followed by the name
+ * as a length-prefixed UTF-8 string (length -1 for {@code null}).
+ */
+public final class EntityCodec {
+
+    // Stands for a null version, which entities have until they are first saved
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    private EntityCodec() {
+    }
+
+    /** Encoded size of an entity whose name encodes to {@code nameBytes}. */
+    public static int encodedSize(byte[] nameBytes) {
+        return 8 + 8 + 4 + (nameBytes == null ? 0 : nameBytes.length);
+    }
+
+    public static byte[] nameBytes(MyEntity entity) {
+        return entity.getName() == null ? null : entity.getName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Writes the entity at the buffer's position, advancing it. */
+    public static void encode(MyEntity entity, byte[] nameBytes, ByteBuffer buffer) {
+        buffer.putLong(entity.getId());
+        buffer.putLong(entity.getVersion() == null ? NO_VERSION : entity.getVersion());
+        if (nameBytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(nameBytes.length);
+            buffer.put(nameBytes);
+        }
+    }
+
+    /** Reads an entity at the buffer's position, advancing it. */
+    public static MyEntity decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        int length = buffer.getInt();
+        String name = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new MyEntity(id, name, version == NO_VERSION ? null : version);
+    }
+}
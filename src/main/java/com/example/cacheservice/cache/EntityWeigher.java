@@ -0,0 +1,65 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+/**
+ * Estimates the heap retained by one cached {@link MyEntity}, in bytes.
+ * <p>
+ * The estimate assumes a 64-bit JVM with compressed oops and compact strings (12-byte object
+ * headers, 4-byte references, 8-byte alignment). It counts the {@link CacheEntry}, its slot in the
+ * {@link LongEntryMap}, the entity, its boxed id and version and its name; it is meant to be close
+ * enough to size a heap budget, not exact.
+ */
+final class EntityWeigher implements Weigher {
+
+    static final EntityWeigher INSTANCE = new EntityWeigher();
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int BOXED_LONG = 16;
+    // CacheEntry: key, eviction links and counters, entity, timestamps, timer links, weight
+    private static final int CACHE_ENTRY = 80;
+    // A long key and an entry reference per slot, at the index's 0.75 load factor
+    private static final int MAP_SLOT = 16;
+    // MyEntity: id, name and version references
+    private static final int ENTITY = align(HEADER + 4 + 4 + 4);
+    // String: value reference, hash, coder, hashIsZero
+    private static final int STRING = align(HEADER + 4 + 4 + 1 + 1);
+
+    private static final int FIXED_OVERHEAD = CACHE_ENTRY + MAP_SLOT + ENTITY + BOXED_LONG;
+
+    private EntityWeigher() {
+    }
+
+    @Override
+    public int weigh(MyEntity entity) {
+        long weight = FIXED_OVERHEAD + sizeOf(entity.getName());
+        if (entity.getVersion() != null) {
+            weight += BOXED_LONG;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    private static long sizeOf(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // Compact strings store Latin-1 text in one byte per char and anything else in two
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING + align(ARRAY_HEADER + (long) value.length() * bytesPerChar);
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
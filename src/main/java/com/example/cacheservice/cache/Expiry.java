@@ -0,0 +1,57 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+/**
+ * Decides how long a cached entity lives.
+ * <p>
+ * Durations are in milliseconds and must be positive; {@link #NEVER} keeps an entry until it is evicted,
+ * removed or replaced. The store calls this on every write and every hit, so implementations must be
+ * cheap and thread-safe.
+ */
+public interface Expiry {
+
+    /** A lifetime that never runs out. */
+    long NEVER = Long.MAX_VALUE;
+
+    /** Lifetime of a freshly written entity, counted from the write. Not consulted when a TTL is given. */
+    long expireAfterWrite(MyEntity entity);
+
+    /**
+     * Lifetime left after the entity has been read.
+     *
+     * @param ttlMillis       the lifetime the entry was written with, whether from this expiry or a per-entry TTL
+     * @param remainingMillis what the entry had left before this read
+     */
+    long expireAfterRead(MyEntity entity, long ttlMillis, long remainingMillis);
+
+    /** Entries live {@code millis} from their write; reads do not extend them. */
+    static Expiry afterWrite(long millis) {
+        return new Expiry() {
+            @Override
+            public long expireAfterWrite(MyEntity entity) {
+                return millis;
+            }
+
+            @Override
+            public long expireAfterRead(MyEntity entity, long ttlMillis, long remainingMillis) {
+                return remainingMillis;
+            }
+        };
+    }
+
+    /** Entries live {@code millis} from their last read or write. */
+    static Expiry afterAccess(long millis) {
+        return new Expiry() {
+            @Override
+            public long expireAfterWrite(MyEntity entity) {
+                return millis;
+            }
+
+            @Override
+            public long expireAfterRead(MyEntity entity, long ttlMillis, long remainingMillis) {
+                return ttlMillis;
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.cacheservice.cache;
+
+/**
+ * The expiry modes that can be selected through {@code cache.expiryMode}.
+ */
+public enum ExpiryMode {
+
+    /** Entries live {@code expirationMillis} from their last read or write. */
+    AFTER_ACCESS,
+    /** Entries live {@code expirationMillis} from their write, however often they are read. */
+    AFTER_WRITE,
+    /** Lifetimes come from the application's {@link Expiry} bean. */
+    CUSTOM;
+
+    /**
+     * @param custom the application's expiry; required for {@link #CUSTOM}, ignored otherwise
+     */
+    public Expiry create(long expirationMillis, Expiry custom) {
+        switch (this) {
+            case AFTER_WRITE:
+                return Expiry.afterWrite(expirationMillis);
+            case CUSTOM:
+                if (custom == null) {
+                    throw new IllegalStateException("cache.expiryMode CUSTOM needs an Expiry bean");
+                }
+                return custom;
+            case AFTER_ACCESS:
+            default:
+                return Expiry.afterAccess(expirationMillis);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.cacheservice.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Concurrent hash map from primitive {@code long} ids to {@link CacheEntry}s, used as the store's index.
+ * <p>
+ * Keys live in a {@code long[]} next to a parallel {@code CacheEntry[]}, with linear probing and
+ * backward-shift deletion, so there is no boxed key, map node or tombstone per entry. The map is split
+ * into segments, each guarded by a {@link StampedLock}: writers take the segment's write lock, while
+ * readers probe under an optimistic stamp and only fall back to the read lock if a writer got in the
+ * way. A lookup therefore neither blocks nor allocates.
+ */
+final class LongEntryMap {
+
+    private static final int MIN_CAPACITY = 8;
+    // Linear probing degrades quickly above this
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    LongEntryMap(int expectedSize) {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+        segments = new Segment[n];
+        int perSegment = (int) Math.min(1 << 30, (long) Math.max(1, expectedSize) / n / LOAD_FACTOR + 1);
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        // Segments are picked by the hash's top bits, slots by its bottom bits
+        segmentShift = 64 - Integer.numberOfTrailingZeros(n);
+    }
+
+    CacheEntry get(long key) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.tryOptimisticRead();
+        CacheEntry entry = segment.table.find(key, hash);
+        if (!segment.validate(stamp)) {
+            stamp = segment.readLock();
+            try {
+                entry = segment.table.find(key, hash);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    /** @return the entry previously mapped to the key, or {@code null} */
+    CacheEntry put(long key, CacheEntry entry) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return segment.put(key, hash, entry, false);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /** @return the entry already mapped to the key, in which case nothing was inserted */
+    CacheEntry putIfAbsent(long key, CacheEntry entry) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            return segment.put(key, hash, entry, true);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /** Replaces the mapping only if the key is currently mapped to {@code expected}. */
+    boolean replace(long key, CacheEntry expected, CacheEntry entry) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            Table table = segment.table;
+            int slot = table.indexOf(key, hash);
+            if (slot < 0 || table.values[slot] != expected) {
+                return false;
+            }
+            table.values[slot] = entry;
+            return true;
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /** @return the removed entry, or {@code null} if the key was absent */
+    CacheEntry remove(long key) {
+        return removeMatching(key, null);
+    }
+
+    /** Removes the mapping only if the key is currently mapped to {@code expected}. */
+    boolean remove(long key, CacheEntry expected) {
+        return expected != null && removeMatching(key, expected) != null;
+    }
+
+    int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /** Copies the current entries; the copy is consistent per segment, not across segments. */
+    List<CacheEntry> values() {
+        List<CacheEntry> values = new ArrayList<>(size());
+        for (Segment segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                for (CacheEntry entry : segment.table.values) {
+                    if (entry != null) {
+                        values.add(entry);
+                    }
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Weakly consistent scan: hands the entries whose key passes {@code keys} to {@code action}, at most
+     * {@code chunkSize} at a time. Each chunk is copied under its segment's read lock, which is released
+     * before the chunk is passed on, so writers never wait for the consumer. Entries written during the
+     * scan may or may not be seen, and one moved by a concurrent resize or removal may be missed or seen
+     * twice. The chunk list is reused; {@code action} must not keep it.
+     */
+    void forEachChunk(int chunkSize, LongPredicate keys, Consumer<List<CacheEntry>> action) {
+        List<CacheEntry> chunk = new ArrayList<>(chunkSize);
+        for (Segment segment : segments) {
+            int slot = 0;
+            boolean more = true;
+            while (more) {
+                long stamp = segment.readLock();
+                try {
+                    Table table = segment.table;
+                    for (; slot < table.values.length && chunk.size() < chunkSize; slot++) {
+                        CacheEntry entry = table.values[slot];
+                        if (entry != null && keys.test(table.keys[slot])) {
+                            chunk.add(entry);
+                        }
+                    }
+                    more = slot < table.values.length;
+                } finally {
+                    segment.unlockRead(stamp);
+                }
+                if (!chunk.isEmpty()) {
+                    action.accept(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    /** Empties the map, passing every entry it held to {@code removed} under its segment's lock. */
+    void clear(Consumer<CacheEntry> removed) {
+        for (Segment segment : segments) {
+            long stamp = segment.writeLock();
+            try {
+                for (CacheEntry entry : segment.table.values) {
+                    if (entry != null) {
+                        removed.accept(entry);
+                    }
+                }
+                segment.table = new Table(segment.table.values.length);
+                segment.size = 0;
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private CacheEntry removeMatching(long key, CacheEntry expected) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            Table table = segment.table;
+            int slot = table.indexOf(key, hash);
+            if (slot < 0 || (expected != null && table.values[slot] != expected)) {
+                return null;
+            }
+            CacheEntry removed = table.values[slot];
+            table.delete(slot);
+            segment.size--;
+            return removed;
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    // The 64-bit murmur finaliser; sequential ids would otherwise cluster in neighbouring slots
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment extends StampedLock {
+
+        // Replaced wholesale on resize, so an optimistic reader always sees a matching pair of arrays
+        Table table;
+        int size;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+        }
+
+        CacheEntry put(long key, long hash, CacheEntry entry, boolean onlyIfAbsent) {
+            Table current = table;
+            int slot = current.indexOf(key, hash);
+            if (slot >= 0) {
+                CacheEntry previous = current.values[slot];
+                if (!onlyIfAbsent) {
+                    current.values[slot] = entry;
+                }
+                return previous;
+            }
+            if (size + 1 > current.threshold) {
+                current = resize(current);
+            }
+            current.insert(key, hash, entry);
+            size++;
+            return null;
+        }
+
+        private Table resize(Table old) {
+            Table grown = new Table(old.values.length * 2);
+            for (int i = 0; i < old.values.length; i++) {
+                if (old.values[i] != null) {
+                    grown.insert(old.keys[i], hash(old.keys[i]), old.values[i]);
+                }
+            }
+            table = grown;
+            return grown;
+        }
+    }
+
+    private static final class Table {
+
+        final long[] keys;
+        // A null value marks a free slot, so every long is usable as a key
+        final CacheEntry[] values;
+        final int mask;
+        final int threshold;
+
+        Table(int capacity) {
+            int size = Math.max(MIN_CAPACITY, ceilingPowerOfTwo(capacity));
+            keys = new long[size];
+            values = new CacheEntry[size];
+            mask = size - 1;
+            threshold = (int) (size * LOAD_FACTOR);
+        }
+
+        /**
+         * Probe used by optimistic readers: it may run against a table that is being modified, so it
+         * is bounded by the table length and its result is only trusted once the stamp validates.
+         */
+        CacheEntry find(long key, long hash) {
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                CacheEntry entry = values[slot];
+                if (entry == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return entry;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        int indexOf(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, long hash, CacheEntry entry) {
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = entry;
+        }
+
+        /** Frees the slot and pulls later members of its probe run back, so no tombstones are needed. */
+        void delete(int slot) {
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (values[next] != null) {
+                int home = (int) hash(keys[next]) & mask;
+                // Move the entry into the gap unless its home lies cyclically in (gap, next]
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            values[gap] = null;
+            keys[gap] = 0;
+        }
+
+        private static int ceilingPowerOfTwo(int x) {
+            return x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1;
+        }
+    }
+}
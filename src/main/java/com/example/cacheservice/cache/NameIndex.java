@@ -0,0 +1,131 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Secondary index from entity name to ids, next to a {@link ConcurrentCacheStore}.
+ * <p>
+ * A name is only indexed when the answer is complete: its ids are those of every entity with that
+ * name, and every one of them is cached, so a hit needs neither the DB nor a scan. Names are filled
+ * from a DB query ({@link #fill}), kept up to date by writes ({@link #added}) and by the store's
+ * {@link RemovalListener}: a rename moves the id to the new name, while an entity that is evicted,
+ * expires or is removed takes its name out of the index, since the cache no longer holds all of it.
+ * Names with no entities are not indexed, so the index never holds more names than the cache holds
+ * entities.
+ * <p>
+ * Every change to a name bumps an epoch, striped by name hash. A fill carries the epoch read before
+ * its query and is dropped if the name changed while the query ran, so a slow query cannot install a
+ * result that misses a concurrent write.
+ */
+public class NameIndex implements RemovalListener {
+
+    private static final int EPOCH_STRIPES = 256;
+
+    private final ConcurrentHashMap<String, long[]> ids = new ConcurrentHashMap<>();
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** The ids of every entity with the name, or {@code null} if the name is not indexed; counts a hit or a miss. */
+    public long[] get(String name) {
+        long[] found = ids.get(name);
+        if (found == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return found;
+    }
+
+    /** To be read before querying the DB for the name, and passed to {@link #fill}. */
+    public long epoch(String name) {
+        return epochs.get(stripe(name));
+    }
+
+    /**
+     * Indexes the ids found by a DB query for the name, unless the name changed since {@code epoch}
+     * was read. The entities must have been cached first.
+     */
+    public void fill(String name, long[] found, long epoch) {
+        if (found.length == 0) {
+            return;
+        }
+        // Checked under the name's bin lock, which every change to the name also takes
+        ids.compute(name, (key, current) -> epochs.get(stripe(key)) == epoch ? found : current);
+    }
+
+    /** Records a write: a newly cached entity joins its name if that name is indexed. */
+    public void added(MyEntity entity) {
+        String name = entity.getName();
+        if (name == null) {
+            return;
+        }
+        long id = entity.getId();
+        ids.compute(name, (key, current) -> {
+            epochs.incrementAndGet(stripe(key));
+            if (current == null || contains(current, id)) {
+                return current;
+            }
+            long[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = id;
+            return grown;
+        });
+    }
+
+    @Override
+    public void onRemoval(MyEntity removed, MyEntity replacement) {
+        String name = removed.getName();
+        if (name == null || (replacement != null && Objects.equals(name, replacement.getName()))) {
+            return;
+        }
+        long id = removed.getId();
+        ids.compute(name, (key, current) -> {
+            epochs.incrementAndGet(stripe(key));
+            if (current == null || replacement == null) {
+                return null;
+            }
+            // Renamed: the remaining entities with the old name are all still cached
+            long[] shrunk = Arrays.stream(current).filter(other -> other != id).toArray();
+            return shrunk.length == 0 ? null : shrunk;
+        });
+    }
+
+    public void clear() {
+        // Invalidates fills already in flight as well
+        for (int i = 0; i < EPOCH_STRIPES; i++) {
+            epochs.incrementAndGet(i);
+        }
+        ids.clear();
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static boolean contains(long[] values, long id) {
+        for (long value : values) {
+            if (value == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int stripe(String name) {
+        return (name.hashCode() & 0x7fffffff) % EPOCH_STRIPES;
+    }
+}
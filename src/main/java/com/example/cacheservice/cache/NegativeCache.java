@@ -0,0 +1,92 @@
+package com.example.cacheservice.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers, for a short time, ids that were found in neither the cache nor the DB, so that
+ * repeated lookups of missing ids do not reach the repository.
+ * <p>
+ * Bounded to {@code maxSize} ids; the oldest are dropped first.
+ */
+public class NegativeCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<Long, Record> records = new ConcurrentHashMap<>();
+    // Every record ever made, oldest first; those replaced or invalidated since are skipped when trimming
+    private final ConcurrentLinkedQueue<Record> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public NegativeCache(int maxSize, long ttlMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /** Whether the id is known to be missing; counts a hit or a miss. */
+    public boolean isKnownMissing(long id) {
+        Record record = records.get(id);
+        if (record != null) {
+            if (System.currentTimeMillis() <= record.deadline) {
+                hits.increment();
+                return true;
+            }
+            records.remove(id, record);
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void recordMissing(long id) {
+        Record record = new Record(id, System.currentTimeMillis() + ttlMillis);
+        records.put(id, record);
+        insertionOrder.add(record);
+        queued.incrementAndGet();
+        // The queue may hold records that were invalidated or replaced since; trim it along with the map
+        while (records.size() > maxSize || queued.get() > 2 * maxSize) {
+            Record oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            // Only if still current, so an outdated entry cannot drop a newer record of the same id
+            records.remove(oldest.id, oldest);
+        }
+    }
+
+    public void invalidate(long id) {
+        records.remove(id);
+    }
+
+    public void clear() {
+        records.clear();
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Compared by identity, so each record is only ever removed through its own queue entry. */
+    private static final class Record {
+
+        final long id;
+        final long deadline;
+
+        Record(long id, long deadline) {
+            this.id = id;
+            this.deadline = deadline;
+        }
+    }
+}
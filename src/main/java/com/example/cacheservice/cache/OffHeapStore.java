@@ -0,0 +1,268 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Second-level cache tier that keeps serialized entities outside the Java heap.
+ * <p>
+ * Records are appended to a ring of fixed-size slabs, either direct buffers or regions of a
+ * memory-mapped file. When the ring wraps, the oldest slab is reclaimed as a whole: its live
+ * records are returned to the caller as evicted, and records that were overwritten, promoted or
+ * expired in the meantime are simply dropped. Only a small id-to-address index stays on heap.
+ * <p>
+ * A record keeps the deadline its entry had on heap, so moving an entry here does not extend its lifetime.
+ * <p>
+ * Reads share a read lock; appends and slab reclamation take the write lock. Neither ever
+ * does any database work.
+ */
+public class OffHeapStore implements AutoCloseable {
+
+    /** Record layout: length (int), deadline (long), then the {@link EntityCodec} payload. */
+    private static final int HEADER_BYTES = 4 + 8;
+
+    private final int slabBytes;
+    private final ByteBuffer[] slabs;
+    private final int[] slabLimits;
+    private final FileChannel channel;
+    private final ConcurrentHashMap<Long, Long> index = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int currentSlab;
+    private int writeOffset;
+
+    /**
+     * @param maxBytes   total bytes across all slabs
+     * @param slabBytes  size of one slab; also the upper bound for a single record
+     * @param mappedFile backing file for memory-mapped slabs, or {@code null} for direct buffers
+     */
+    public OffHeapStore(long maxBytes, int slabBytes, Path mappedFile) {
+        if (slabBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("slabBytes is too small");
+        }
+        int slabCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / slabBytes));
+        this.slabBytes = slabBytes;
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabLimits = new int[slabCount];
+        try {
+            this.channel = mappedFile == null ? null : FileChannel.open(mappedFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open off-heap backing file " + mappedFile, e);
+        }
+    }
+
+    /**
+     * Stores the entries' entities until the entries' deadlines, replacing older copies. Entries that
+     * have already expired are dropped.
+     *
+     * @return live entities pushed out of the tier to make room, plus any entity too large to store
+     */
+    public List<MyEntity> putAll(Collection<CacheEntry> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MyEntity> evicted = new ArrayList<>(0);
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (CacheEntry entry : entries) {
+                MyEntity entity = entry.getEntity();
+                if (entry.isExpired(now)) {
+                    index.remove(entity.getId());
+                    continue;
+                }
+                byte[] nameBytes = EntityCodec.nameBytes(entity);
+                int length = HEADER_BYTES + EntityCodec.encodedSize(nameBytes);
+                if (length > slabBytes) {
+                    index.remove(entity.getId());
+                    evicted.add(entity);
+                    continue;
+                }
+                if (slabs[currentSlab] == null || writeOffset + length > slabBytes) {
+                    advanceSlab(evicted, now);
+                }
+                ByteBuffer slab = slabs[currentSlab].duplicate();
+                slab.position(writeOffset);
+                slab.putInt(length);
+                slab.putLong(entry.getDeadline());
+                EntityCodec.encode(entity, nameBytes, slab);
+                index.put(entity.getId(), address(currentSlab, writeOffset));
+                writeOffset += length;
+                slabLimits[currentSlab] = writeOffset;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes the entity from this tier and returns it, or {@code null} if it is absent or
+     * its deadline has passed. Used to promote a hit back to the heap.
+     */
+    public MyEntity take(long id) {
+        lock.readLock().lock();
+        try {
+            return takeLocked(id, System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Batch form of {@link #take}, holding the read lock once for all ids.
+     */
+    public Map<Long, MyEntity> takeAll(Collection<Long> ids) {
+        Map<Long, MyEntity> found = new HashMap<>();
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                MyEntity entity = takeLocked(id, now);
+                if (entity != null) {
+                    found.put(id, entity);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    public void remove(long id) {
+        index.remove(id);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            writeOffset = 0;
+            Arrays.fill(slabLimits, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long getCapacityBytes() {
+        return (long) slabs.length * slabBytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private MyEntity takeLocked(long id, long now) {
+        Long address = index.remove(id);
+        if (address == null) {
+            misses.increment();
+            return null;
+        }
+        ByteBuffer record = slabs[slabOf(address)].duplicate();
+        record.position(offsetOf(address) + 4);
+        long deadline = record.getLong();
+        if (now - deadline > 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return EntityCodec.decode(record);
+    }
+
+    private void advanceSlab(List<MyEntity> evicted, long now) {
+        if (slabs[currentSlab] != null) {
+            currentSlab = (currentSlab + 1) % slabs.length;
+        }
+        if (slabs[currentSlab] == null) {
+            slabs[currentSlab] = allocate(currentSlab);
+        } else {
+            reclaim(currentSlab, evicted, now);
+        }
+        writeOffset = 0;
+        slabLimits[currentSlab] = 0;
+    }
+
+    private void reclaim(int slabIndex, List<MyEntity> evicted, long now) {
+        ByteBuffer slab = slabs[slabIndex].duplicate();
+        int offset = 0;
+        int limit = slabLimits[slabIndex];
+        while (offset < limit) {
+            slab.position(offset);
+            int length = slab.getInt();
+            long deadline = slab.getLong();
+            int payload = slab.position();
+            long id = slab.getLong();
+            if (index.remove(id, address(slabIndex, offset)) && now - deadline <= 0) {
+                slab.position(payload);
+                evicted.add(EntityCodec.decode(slab));
+                evictions.increment();
+            }
+            offset += length;
+        }
+    }
+
+    private ByteBuffer allocate(int slabIndex) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(slabBytes);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) slabIndex * slabBytes, slabBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map off-heap slab " + slabIndex, e);
+        }
+    }
+
+    private static long address(int slab, int offset) {
+        return ((long) slab << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+/**
+ * Told about every entity that leaves a {@link ConcurrentCacheStore}, except through
+ * {@link ConcurrentCacheStore#clear()}.
+ * <p>
+ * Called synchronously, sometimes while the store holds its eviction lock, so it must be quick and
+ * must not call back into the store.
+ */
+@FunctionalInterface
+public interface RemovalListener {
+
+    /**
+     * @param removed     the entity no longer cached
+     * @param replacement the entity cached in its place under the same id, or {@code null} if it was
+     *                    removed, evicted or expired
+     */
+    void onRemoval(MyEntity removed, MyEntity replacement);
+
+    static RemovalListener none() {
+        return (removed, replacement) -> { };
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.cacheservice.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel that tracks when entries are due to expire.
+ * <p>
+ * Scheduling and cancelling are O(1). Advancing the wheel only visits the buckets whose time
+ * span has elapsed since the previous advance, and entries in coarse buckets are cascaded
+ * into finer ones as their deadline approaches, so the cost of expiry is proportional to the
+ * number of entries that are actually due rather than to the size of the cache.
+ * <p>
+ * Not thread-safe; the store drives it while holding its eviction lock.
+ */
+final class TimerWheel {
+
+    /** Buckets per level; every level but the last must be a power of two. */
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    /** Bucket span of each level in milliseconds: ~1s, ~65s, ~70m, ~37h, ~6.2d (and beyond). */
+    private static final long[] SPANS = {
+            1L << 10, 1L << 16, 1L << 22, 1L << 27, 1L << 29, 1L << 29};
+
+    private static final int[] SHIFT = {10, 16, 22, 27, 29};
+
+    private final CacheEntry[][] wheel;
+    private long currentTime;
+
+    TimerWheel(long now) {
+        this.currentTime = now;
+        wheel = new CacheEntry[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new CacheEntry[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = sentinel();
+            }
+        }
+    }
+
+    /** Schedules the entry to fire at its {@link CacheEntry#getExpiresAt() deadline}. */
+    void schedule(CacheEntry entry) {
+        deschedule(entry);
+        link(findBucket(entry.getExpiresAt()), entry);
+    }
+
+    void deschedule(CacheEntry entry) {
+        if (entry.timerNext != null) {
+            entry.timerPrev.timerNext = entry.timerNext;
+            entry.timerNext.timerPrev = entry.timerPrev;
+            entry.timerNext = null;
+            entry.timerPrev = null;
+        }
+    }
+
+    /**
+     * Moves the wheel forward to {@code now}, passing every entry whose deadline has been
+     * reached to {@code due}. The entry is descheduled before the callback runs, so the
+     * callback may schedule it again.
+     */
+    void advance(long now, Consumer<CacheEntry> due) {
+        long previousTime = currentTime;
+        if (now <= previousTime) {
+            return;
+        }
+        currentTime = now;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, due);
+        }
+    }
+
+    void clear() {
+        for (CacheEntry[] level : wheel) {
+            for (CacheEntry sentinel : level) {
+                CacheEntry entry = sentinel.timerNext;
+                while (entry != sentinel) {
+                    CacheEntry next = entry.timerNext;
+                    entry.timerNext = null;
+                    entry.timerPrev = null;
+                    entry = next;
+                }
+                sentinel.timerNext = sentinel;
+                sentinel.timerPrev = sentinel;
+            }
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, Consumer<CacheEntry> due) {
+        CacheEntry[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            CacheEntry sentinel = buckets[i & mask];
+            CacheEntry entry = sentinel.timerNext;
+            sentinel.timerNext = sentinel;
+            sentinel.timerPrev = sentinel;
+            while (entry != sentinel) {
+                CacheEntry next = entry.timerNext;
+                entry.timerNext = null;
+                entry.timerPrev = null;
+                if (entry.getExpiresAt() - currentTime > 0) {
+                    // Not yet due; cascade into a finer bucket
+                    link(findBucket(entry.getExpiresAt()), entry);
+                } else {
+                    due.accept(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private CacheEntry findBucket(long deadline) {
+        // Overdue entries go into the current bucket so the next advance picks them up
+        long time = Math.max(deadline, currentTime);
+        long duration = time - currentTime;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static void link(CacheEntry sentinel, CacheEntry entry) {
+        entry.timerPrev = sentinel.timerPrev;
+        entry.timerNext = sentinel;
+        sentinel.timerPrev.timerNext = entry;
+        sentinel.timerPrev = entry;
+    }
+
+    private static CacheEntry sentinel() {
+        CacheEntry sentinel = new CacheEntry(Long.MIN_VALUE, null);
+        sentinel.timerPrev = sentinel;
+        sentinel.timerNext = sentinel;
+        return sentinel;
+    }
+}
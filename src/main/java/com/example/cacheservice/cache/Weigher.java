@@ -0,0 +1,25 @@
+package com.example.cacheservice.cache;
+
+import com.example.cacheservice.entity.MyEntity;
+
+/**
+ * Computes how much of the store's capacity an entity consumes.
+ * <p>
+ * The weight is taken once, when the entity is stored, and must be positive; replacing an
+ * entity re-weighs it.
+ */
+@FunctionalInterface
+public interface Weigher {
+
+    int weigh(MyEntity entity);
+
+    /** Every entity weighs one, so the capacity is an entry count. */
+    static Weigher singleton() {
+        return entity -> 1;
+    }
+
+    /** Weighs entities by the heap they and their bookkeeping retain, in bytes. */
+    static Weigher retainedSize() {
+        return EntityWeigher.INSTANCE;
+    }
+}
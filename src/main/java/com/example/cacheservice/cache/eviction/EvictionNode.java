@@ -0,0 +1,40 @@
+package com.example.cacheservice.cache.eviction;
+
+/**
+ * A key tracked by an {@link EvictionPolicy}.
+ * <p>
+ * Policies link nodes into their own queues through the package-private fields below;
+ * those fields are only touched while the owner's eviction lock is held.
+ */
+public class EvictionNode {
+
+    static final byte NONE = 0;
+    static final byte WINDOW = 1;
+    static final byte PROBATION = 2;
+    static final byte PROTECTED = 3;
+
+    private final long key;
+
+    EvictionNode prev;
+    EvictionNode next;
+    byte queue = NONE;
+    int frequency;
+
+    public EvictionNode(long key) {
+        this.key = key;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    /** Capacity this node consumes in its policy; must not change while resident. */
+    public int getWeight() {
+        return 1;
+    }
+
+    /** Whether the node is currently held by a policy. */
+    public boolean isResident() {
+        return queue != NONE;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.util.function.Consumer;
+
+/**
+ * Decides which resident nodes to drop when the cache is over capacity.
+ * <p>
+ * Implementations are not thread-safe; the cache calls them while holding its eviction lock.
+ * A node handed to the eviction callback has already been removed from the policy.
+ */
+public interface EvictionPolicy {
+
+    /** Records a hit on a node. Ignored if the node is no longer resident. */
+    void recordAccess(EvictionNode node);
+
+    /**
+     * Adds a new node and evicts until the policy is back within its maximum.
+     * The new node itself may be rejected and passed to {@code evicted}.
+     */
+    void add(EvictionNode node, Consumer<EvictionNode> evicted);
+
+    /** Removes a node that left the cache for another reason. Ignored if not resident. */
+    void remove(EvictionNode node);
+
+    void clear();
+
+    long weightedSize();
+
+    long maximum();
+
+    /**
+     * Changes the capacity and evicts until the policy is within it. Segment limits derived from the
+     * maximum follow it; shrinking demotes nodes between segments as needed rather than evicting them.
+     */
+    void setMaximum(long maximum, Consumer<EvictionNode> evicted);
+}
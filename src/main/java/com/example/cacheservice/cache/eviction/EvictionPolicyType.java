@@ -0,0 +1,38 @@
+package com.example.cacheservice.cache.eviction;
+
+/**
+ * The eviction policies that can be selected through {@code cache.eviction.policy}.
+ */
+public enum EvictionPolicyType {
+
+    /** Least recently used. */
+    LRU,
+    /** Least frequently used, ties broken by recency. */
+    LFU,
+    /** Segmented LRU: a probation segment in front of a protected segment. */
+    SLRU,
+    /** A small LRU window in front of an SLRU main space, guarded by a TinyLFU admission filter. */
+    W_TINYLFU;
+
+    public EvictionPolicy create(long maximum, int windowPercent, int protectedPercent) {
+        return create(maximum, maximum, windowPercent, protectedPercent);
+    }
+
+    /**
+     * @param maximum         capacity in weight units
+     * @param expectedEntries how many nodes the capacity holds, for policies that size structures per node
+     */
+    public EvictionPolicy create(long maximum, long expectedEntries, int windowPercent, int protectedPercent) {
+        switch (this) {
+            case LFU:
+                return new LfuPolicy(maximum);
+            case SLRU:
+                return new SlruPolicy(maximum, protectedPercent);
+            case W_TINYLFU:
+                return new WindowTinyLfuPolicy(maximum, expectedEntries, windowPercent, protectedPercent);
+            case LRU:
+            default:
+                return new LruPolicy(maximum);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replays an access trace against every eviction policy and prints the hit ratio of each,
+ * so a policy can be chosen from real traffic.
+ * <p>
+ * The trace is read once, line by line. A line that is just a number is taken as the key;
+ * otherwise the first capture group of the key pattern is used (by default it matches
+ * request lines such as {@code GET /api/cache/get/42}). Lines without a key are skipped.
+ * <pre>
+ * java -cp target/classes com.example.cacheservice.cache.eviction.HitRatioSimulator \
+ *     access.log 1000,10000 [--pattern=regex] [--window=1] [--protected=80]
+ * </pre>
+ */
+public class HitRatioSimulator {
+
+    private static final Pattern DEFAULT_PATTERN = Pattern.compile("/get/(\\d+)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: HitRatioSimulator <trace-file> <capacity[,capacity...]> "
+                    + "[--pattern=regex] [--window=percent] [--protected=percent]");
+            System.exit(1);
+        }
+        Path trace = Paths.get(args[0]);
+        Pattern pattern = DEFAULT_PATTERN;
+        int windowPercent = 1;
+        int protectedPercent = 80;
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--pattern=")) {
+                pattern = Pattern.compile(arg.substring("--pattern=".length()));
+            } else if (arg.startsWith("--window=")) {
+                windowPercent = Integer.parseInt(arg.substring("--window=".length()));
+            } else if (arg.startsWith("--protected=")) {
+                protectedPercent = Integer.parseInt(arg.substring("--protected=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        List<Simulation> simulations = new ArrayList<>();
+        for (String capacity : args[1].split(",")) {
+            for (EvictionPolicyType type : EvictionPolicyType.values()) {
+                long maximum = Long.parseLong(capacity.trim());
+                simulations.add(new Simulation(type, maximum, type.create(maximum, windowPercent, protectedPercent)));
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Long key = parseKey(line, pattern);
+                if (key != null) {
+                    for (Simulation simulation : simulations) {
+                        simulation.access(key);
+                    }
+                }
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-10s %12s %14s %12s%n", "policy", "capacity", "requests", "hit ratio");
+        for (Simulation simulation : simulations) {
+            System.out.printf(Locale.ROOT, "%-10s %12d %14d %11.2f%%%n", simulation.getType(), simulation.getMaximum(),
+                    simulation.getRequests(), simulation.hitRatio() * 100);
+        }
+    }
+
+    static Long parseKey(String line, Pattern pattern) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        if (Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '-') {
+            try {
+                return Long.parseLong(trimmed);
+            } catch (NumberFormatException ignored) {
+                // fall through to the pattern
+            }
+        }
+        Matcher matcher = pattern.matcher(line);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : null;
+    }
+
+    /**
+     * One policy replaying a trace at a fixed capacity.
+     */
+    public static class Simulation {
+        private final EvictionPolicyType type;
+        private final long maximum;
+        private final EvictionPolicy policy;
+        private final Map<Long, EvictionNode> resident = new HashMap<>();
+        private long requests;
+        private long hits;
+
+        public Simulation(EvictionPolicyType type, long maximum, EvictionPolicy policy) {
+            this.type = type;
+            this.maximum = maximum;
+            this.policy = policy;
+        }
+
+        public void access(long key) {
+            requests++;
+            EvictionNode node = resident.get(key);
+            if (node != null) {
+                hits++;
+                policy.recordAccess(node);
+                return;
+            }
+            node = new EvictionNode(key);
+            resident.put(key, node);
+            policy.add(node, victim -> resident.remove(victim.getKey()));
+        }
+
+        public double hitRatio() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        public EvictionPolicyType getType() {
+            return type;
+        }
+
+        public long getMaximum() {
+            return maximum;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+    }
+}
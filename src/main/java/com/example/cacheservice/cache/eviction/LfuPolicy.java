@@ -0,0 +1,110 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least frequently used node, oldest first among equal frequencies.
+ * <p>
+ * Nodes are kept in one LRU bucket per access count, so every operation is O(1) apart from
+ * re-finding the lowest bucket after an explicit removal emptied it.
+ */
+public class LfuPolicy implements EvictionPolicy {
+
+    private long maximum;
+    private final Map<Integer, NodeDeque> buckets = new HashMap<>();
+    private int minFrequency;
+    private long weightedSize;
+
+    public LfuPolicy(long maximum) {
+        this.maximum = maximum;
+    }
+
+    @Override
+    public void recordAccess(EvictionNode node) {
+        if (!node.isResident()) {
+            return;
+        }
+        int frequency = node.frequency;
+        unlinkFromBucket(node);
+        if (minFrequency == frequency && !buckets.containsKey(frequency)) {
+            minFrequency = frequency + 1;
+        }
+        node.frequency = frequency == Integer.MAX_VALUE ? frequency : frequency + 1;
+        bucket(node.frequency).addLast(node);
+    }
+
+    @Override
+    public void add(EvictionNode node, Consumer<EvictionNode> evicted) {
+        // A new node starts at the lowest frequency, so make room first or it would be its own victim
+        while (weightedSize > 0 && weightedSize + node.getWeight() > maximum) {
+            evicted.accept(evictOne());
+        }
+        node.frequency = 1;
+        bucket(1).addLast(node);
+        weightedSize += node.getWeight();
+        minFrequency = 1;
+        if (weightedSize > maximum) {
+            remove(node);
+            evicted.accept(node);
+        }
+    }
+
+    @Override
+    public void remove(EvictionNode node) {
+        if (node.isResident()) {
+            unlinkFromBucket(node);
+            weightedSize -= node.getWeight();
+        }
+    }
+
+    @Override
+    public void clear() {
+        buckets.values().forEach(NodeDeque::clear);
+        buckets.clear();
+        minFrequency = 0;
+        weightedSize = 0;
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public long maximum() {
+        return maximum;
+    }
+
+    @Override
+    public void setMaximum(long maximum, Consumer<EvictionNode> evicted) {
+        this.maximum = maximum;
+        while (weightedSize > maximum) {
+            evicted.accept(evictOne());
+        }
+    }
+
+    private EvictionNode evictOne() {
+        NodeDeque lowest = buckets.get(minFrequency);
+        if (lowest == null) {
+            minFrequency = buckets.keySet().stream().min(Integer::compare).orElse(1);
+            lowest = buckets.get(minFrequency);
+        }
+        EvictionNode victim = lowest.peekFirst();
+        remove(victim);
+        return victim;
+    }
+
+    private void unlinkFromBucket(EvictionNode node) {
+        NodeDeque bucket = buckets.get(node.frequency);
+        bucket.remove(node);
+        if (bucket.peekFirst() == null) {
+            buckets.remove(node.frequency);
+        }
+    }
+
+    private NodeDeque bucket(int frequency) {
+        return buckets.computeIfAbsent(frequency, f -> new NodeDeque(EvictionNode.PROBATION));
+    }
+}
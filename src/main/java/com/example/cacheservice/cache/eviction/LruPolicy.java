@@ -0,0 +1,59 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least recently used node.
+ */
+public class LruPolicy implements EvictionPolicy {
+
+    private long maximum;
+    private final NodeDeque deque = new NodeDeque(EvictionNode.PROBATION);
+
+    public LruPolicy(long maximum) {
+        this.maximum = maximum;
+    }
+
+    @Override
+    public void recordAccess(EvictionNode node) {
+        deque.moveToBack(node);
+    }
+
+    @Override
+    public void add(EvictionNode node, Consumer<EvictionNode> evicted) {
+        deque.addLast(node);
+        evictExcess(evicted);
+    }
+
+    @Override
+    public void remove(EvictionNode node) {
+        deque.remove(node);
+    }
+
+    @Override
+    public void clear() {
+        deque.clear();
+    }
+
+    @Override
+    public long weightedSize() {
+        return deque.weightedSize();
+    }
+
+    @Override
+    public long maximum() {
+        return maximum;
+    }
+
+    @Override
+    public void setMaximum(long maximum, Consumer<EvictionNode> evicted) {
+        this.maximum = maximum;
+        evictExcess(evicted);
+    }
+
+    private void evictExcess(Consumer<EvictionNode> evicted) {
+        while (deque.weightedSize() > maximum) {
+            evicted.accept(deque.pollFirst());
+        }
+    }
+}
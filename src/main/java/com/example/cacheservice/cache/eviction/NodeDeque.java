@@ -0,0 +1,103 @@
+package com.example.cacheservice.cache.eviction;
+
+/**
+ * Intrusive doubly-linked list of {@link EvictionNode}s, least recently used first.
+ * Not thread-safe.
+ */
+final class NodeDeque {
+
+    private final byte queue;
+    private EvictionNode head;
+    private EvictionNode tail;
+    private long weightedSize;
+
+    NodeDeque(byte queue) {
+        this.queue = queue;
+    }
+
+    void addLast(EvictionNode node) {
+        link(node);
+        weightedSize += node.getWeight();
+    }
+
+    void moveToBack(EvictionNode node) {
+        if (node.queue != queue || node == tail) {
+            return;
+        }
+        unlink(node);
+        link(node);
+    }
+
+    boolean remove(EvictionNode node) {
+        if (node.queue != queue) {
+            return false;
+        }
+        unlink(node);
+        node.queue = EvictionNode.NONE;
+        weightedSize -= node.getWeight();
+        return true;
+    }
+
+    EvictionNode peekFirst() {
+        return head;
+    }
+
+    EvictionNode pollFirst() {
+        EvictionNode first = head;
+        if (first != null) {
+            remove(first);
+        }
+        return first;
+    }
+
+    boolean contains(EvictionNode node) {
+        return node.queue == queue;
+    }
+
+    long weightedSize() {
+        return weightedSize;
+    }
+
+    void clear() {
+        EvictionNode node = head;
+        while (node != null) {
+            EvictionNode next = node.next;
+            node.prev = null;
+            node.next = null;
+            node.queue = EvictionNode.NONE;
+            node = next;
+        }
+        head = null;
+        tail = null;
+        weightedSize = 0;
+    }
+
+    private void link(EvictionNode node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        node.queue = queue;
+    }
+
+    private void unlink(EvictionNode node) {
+        EvictionNode p = node.prev;
+        EvictionNode n = node.next;
+        if (p == null) {
+            head = n;
+        } else {
+            p.next = n;
+        }
+        if (n == null) {
+            tail = p;
+        } else {
+            n.prev = p;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.util.function.Consumer;
+
+/**
+ * Segmented LRU. New nodes enter a probation segment and are promoted to the protected
+ * segment on their second access, so a one-off scan only churns the probation segment.
+ */
+public class SlruPolicy implements EvictionPolicy {
+
+    private final int protectedPercent;
+    private long maximum;
+    private long protectedMaximum;
+    private final NodeDeque probation = new NodeDeque(EvictionNode.PROBATION);
+    private final NodeDeque protectedSegment = new NodeDeque(EvictionNode.PROTECTED);
+
+    public SlruPolicy(long maximum, int protectedPercent) {
+        this.protectedPercent = protectedPercent;
+        this.maximum = maximum;
+        this.protectedMaximum = maximum * protectedPercent / 100;
+    }
+
+    @Override
+    public void recordAccess(EvictionNode node) {
+        if (protectedSegment.contains(node)) {
+            protectedSegment.moveToBack(node);
+        } else if (probation.contains(node)) {
+            probation.remove(node);
+            protectedSegment.addLast(node);
+            demoteExcess();
+        }
+    }
+
+    @Override
+    public void add(EvictionNode node, Consumer<EvictionNode> evicted) {
+        probation.addLast(node);
+        evictExcess(evicted);
+    }
+
+    @Override
+    public void remove(EvictionNode node) {
+        if (!probation.remove(node)) {
+            protectedSegment.remove(node);
+        }
+    }
+
+    @Override
+    public void clear() {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    @Override
+    public long weightedSize() {
+        return probation.weightedSize() + protectedSegment.weightedSize();
+    }
+
+    @Override
+    public long maximum() {
+        return maximum;
+    }
+
+    @Override
+    public void setMaximum(long maximum, Consumer<EvictionNode> evicted) {
+        this.maximum = maximum;
+        this.protectedMaximum = maximum * protectedPercent / 100;
+        demoteExcess();
+        evictExcess(evicted);
+    }
+
+    private void demoteExcess() {
+        while (protectedSegment.weightedSize() > protectedMaximum) {
+            probation.addLast(protectedSegment.pollFirst());
+        }
+    }
+
+    private void evictExcess(Consumer<EvictionNode> evicted) {
+        while (weightedSize() > maximum) {
+            EvictionNode victim = probation.peekFirst() != null ? probation.pollFirst() : protectedSegment.pollFirst();
+            evicted.accept(victim);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.cacheservice.cache.eviction;
+
+import java.util.function.Consumer;
+
+/**
+ * W-TinyLFU: a small LRU admission window in front of a segmented LRU main space.
+ * <p>
+ * New nodes always enter the window. When the window overflows, its oldest node becomes a
+ * candidate for the main space and competes with the main space's eviction victim; a
+ * {@link FrequencySketch} decides which of the two has been used more often and keeps it.
+ * One-off keys from a scan therefore pass through the window without displacing the hot set.
+ */
+public class WindowTinyLfuPolicy implements EvictionPolicy {
+
+    private final int windowPercent;
+    private final int protectedPercent;
+    private long maximum;
+    private long windowMaximum;
+    private long protectedMaximum;
+    private final NodeDeque window = new NodeDeque(EvictionNode.WINDOW);
+    private final NodeDeque probation = new NodeDeque(EvictionNode.PROBATION);
+    private final NodeDeque protectedSegment = new NodeDeque(EvictionNode.PROTECTED);
+    private final FrequencySketch sketch;
+
+    public WindowTinyLfuPolicy(long maximum, int windowPercent, int protectedPercent) {
+        this(maximum, maximum, windowPercent, protectedPercent);
+    }
+
+    /**
+     * @param expectedEntries sizes the frequency sketch; differs from {@code maximum} when nodes
+     *                        weigh more than one, or when the maximum may later be raised
+     */
+    public WindowTinyLfuPolicy(long maximum, long expectedEntries, int windowPercent, int protectedPercent) {
+        this.windowPercent = windowPercent;
+        this.protectedPercent = protectedPercent;
+        this.sketch = new FrequencySketch(expectedEntries);
+        resize(maximum);
+    }
+
+    @Override
+    public void recordAccess(EvictionNode node) {
+        if (!node.isResident()) {
+            return;
+        }
+        sketch.increment(node.getKey());
+        if (window.contains(node)) {
+            window.moveToBack(node);
+        } else if (protectedSegment.contains(node)) {
+            protectedSegment.moveToBack(node);
+        } else {
+            probation.remove(node);
+            protectedSegment.addLast(node);
+            demoteProtected();
+        }
+    }
+
+    @Override
+    public void add(EvictionNode node, Consumer<EvictionNode> evicted) {
+        sketch.increment(node.getKey());
+        window.addLast(node);
+
+        EvictionNode candidate = null;
+        while (window.weightedSize() > windowMaximum) {
+            candidate = window.pollFirst();
+            probation.addLast(candidate);
+            if (weightedSize() > maximum) {
+                evicted.accept(admit(candidate));
+            }
+        }
+        while (weightedSize() > maximum) {
+            evicted.accept(pollVictim());
+        }
+    }
+
+    @Override
+    public void remove(EvictionNode node) {
+        if (!window.remove(node) && !probation.remove(node)) {
+            protectedSegment.remove(node);
+        }
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    @Override
+    public long weightedSize() {
+        return window.weightedSize() + probation.weightedSize() + protectedSegment.weightedSize();
+    }
+
+    @Override
+    public long maximum() {
+        return maximum;
+    }
+
+    @Override
+    public void setMaximum(long maximum, Consumer<EvictionNode> evicted) {
+        resize(maximum);
+        // Overflow moves down a segment without an admission contest; only the main space evicts
+        while (window.weightedSize() > windowMaximum) {
+            probation.addLast(window.pollFirst());
+        }
+        demoteProtected();
+        while (weightedSize() > maximum) {
+            evicted.accept(pollVictim());
+        }
+    }
+
+    private void resize(long maximum) {
+        this.maximum = maximum;
+        this.windowMaximum = Math.max(1, maximum * windowPercent / 100);
+        this.protectedMaximum = Math.max(0, maximum - windowMaximum) * protectedPercent / 100;
+    }
+
+    private void demoteProtected() {
+        while (protectedSegment.weightedSize() > protectedMaximum) {
+            probation.addLast(protectedSegment.pollFirst());
+        }
+    }
+
+    /**
+     * Lets the candidate (just moved to the tail of probation) compete with the main space's
+     * victim and removes the loser.
+     */
+    private EvictionNode admit(EvictionNode candidate) {
+        EvictionNode victim = probation.peekFirst();
+        if (victim == candidate) {
+            victim = protectedSegment.peekFirst();
+        }
+        if (victim == null || sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey())) {
+            remove(candidate);
+            return candidate;
+        }
+        remove(victim);
+        return victim;
+    }
+
+    private EvictionNode pollVictim() {
+        if (probation.peekFirst() != null) {
+            return probation.pollFirst();
+        }
+        if (protectedSegment.peekFirst() != null) {
+            return protectedSegment.pollFirst();
+        }
+        return window.pollFirst();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cacheservice.cluster;
+
+import com.example.cacheservice.dto.MyEntityDTO;
+import com.example.cacheservice.entity.MyEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking HTTP calls to the internal endpoints of other cluster members.
+ * <p>
+ * Every call returns a future that fails with an {@link IOException} when the member is unreachable,
+ * times out or answers with an unexpected status; callers decide how to degrade.
+ */
+public class ClusterClient {
+
+    static final String BASE_PATH = "/internal/cluster";
+    private static final TypeReference<List<MyEntityDTO>> ENTITY_LIST = new TypeReference<>() {
+    };
+
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final Duration timeout;
+
+    public ClusterClient(ObjectMapper mapper, Duration timeout) {
+        this.mapper = mapper;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /** Asks the owner for an entity; empty if it exists neither in the owner's cache nor in the DB. */
+    public CompletableFuture<Optional<MyEntity>> fetch(String node, long id) {
+        HttpRequest request = request(node, "/entities/" + id).GET().build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() == 404) {
+                return Optional.empty();
+            }
+            return Optional.of(toEntity(read(response, MyEntityDTO.class)));
+        });
+    }
+
+    /** Batch form of {@link #fetch}; ids that exist nowhere are left out. */
+    public CompletableFuture<Map<Long, MyEntity>> fetchAll(String node, Collection<Long> ids) {
+        HttpRequest request = request(node, "/entities")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(ids)))
+                .build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            Map<Long, MyEntity> found = new LinkedHashMap<>();
+            for (MyEntityDTO dto : read(response, ENTITY_LIST)) {
+                found.put(dto.getId(), toEntity(dto));
+            }
+            return found;
+        });
+    }
+
+    public CompletableFuture<Void> invalidate(String node, InvalidationMessage message) {
+        HttpRequest request = request(node, "/invalidate")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(write(message)))
+                .build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new UncheckedIOException(new IOException(
+                        "Invalidation rejected by " + node + " with status " + response.statusCode()));
+            }
+        });
+    }
+
+    private HttpRequest.Builder request(String node, String path) {
+        return HttpRequest.newBuilder(URI.create(node + BASE_PATH + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, Class<T> type) {
+        checkStatus(response);
+        try {
+            return mapper.readValue(response.body(), type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, TypeReference<T> type) {
+        checkStatus(response);
+        try {
+            return mapper.readValue(response.body(), type);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] write(Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void checkStatus(HttpResponse<?> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new UncheckedIOException(new IOException(
+                    response.uri() + " answered with status " + response.statusCode()));
+        }
+    }
+
+    private static MyEntity toEntity(MyEntityDTO dto) {
+        return new MyEntity(dto.getId(), dto.getName(), dto.getVersion());
+    }
+}
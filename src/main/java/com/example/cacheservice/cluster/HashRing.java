@@ -0,0 +1,85 @@
+package com.example.cacheservice.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Consistent-hash ring mapping entity ids to cluster members.
+ * <p>
+ * Every node is placed on the ring at {@code virtualNodes} pseudo-random points; an id belongs to
+ * the node at the first point at or after the id's hash. Adding or removing a node therefore only
+ * moves the ids between that node's points and their predecessors, about {@code 1/n} of the total.
+ * The ring is immutable and lookups are a binary search over a sorted {@code long[]}.
+ */
+public final class HashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> nodes;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        int replicas = Math.max(1, virtualNodes);
+
+        long[][] placed = new long[this.nodes.size() * replicas][];
+        int n = 0;
+        for (int node = 0; node < this.nodes.size(); node++) {
+            for (int replica = 0; replica < replicas; replica++) {
+                placed[n++] = new long[]{hash(this.nodes.get(node) + "#" + replica), node};
+            }
+        }
+        // Ties are broken by node index so every member builds the identical ring
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[placed.length];
+        this.owners = new String[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            owners[i] = this.nodes.get((int) placed[i][1]);
+        }
+    }
+
+    public String ownerOf(long id) {
+        int index = Arrays.binarySearch(points, mix(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /** All nodes except {@code self}. */
+    public List<String> peersOf(String self) {
+        List<String> peers = new ArrayList<>(nodes);
+        peers.remove(self);
+        return peers;
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with the 64-bit murmur mix for better spread
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cacheservice.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sent to every other member after a write, so they drop their copies of the ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidationMessage {
+
+    /** Base URL of the member that made the change. */
+    private String origin;
+    private List<Long> ids = new ArrayList<>();
+    /** Drop everything, e.g. after the table was emptied; {@code ids} is ignored. */
+    private boolean all;
+}
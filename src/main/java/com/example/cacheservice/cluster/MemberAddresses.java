@@ -0,0 +1,57 @@
+package com.example.cacheservice.cluster;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The network addresses of the configured cluster members, to tell their requests apart from anyone else's.
+ * <p>
+ * Member host names are resolved up front, and again before an unknown address is refused, so a member
+ * whose DNS entry changed is not locked out. Addresses are matched as seen by this node: a proxy or NAT in
+ * between that rewrites source addresses defeats the check.
+ */
+public class MemberAddresses {
+
+    private final List<String> hosts;
+    private volatile Set<InetAddress> addresses;
+
+    public MemberAddresses(Collection<String> members) {
+        this.hosts = members.stream().map(member -> URI.create(member).getHost()).distinct()
+                .collect(Collectors.toList());
+        this.addresses = resolve();
+    }
+
+    /** Whether the address, an IP literal such as a request's remote address, belongs to a member. */
+    public boolean contains(String address) {
+        InetAddress remote;
+        try {
+            // A literal is only parsed, never looked up
+            remote = InetAddress.getByName(address);
+        } catch (UnknownHostException ex) {
+            return false;
+        }
+        if (addresses.contains(remote)) {
+            return true;
+        }
+        addresses = resolve();
+        return addresses.contains(remote);
+    }
+
+    private Set<InetAddress> resolve() {
+        Set<InetAddress> resolved = new HashSet<>();
+        for (String host : hosts) {
+            try {
+                resolved.addAll(List.of(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException ex) {
+                // Not resolvable right now; tried again on the next unknown address
+            }
+        }
+        return resolved;
+    }
+}
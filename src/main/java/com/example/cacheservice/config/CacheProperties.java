@@ -0,0 +1,258 @@
+package com.example.cacheservice.config;
+
+import com.example.cacheservice.cache.ExpiryMode;
+import com.example.cacheservice.cache.eviction.EvictionPolicy;
+import com.example.cacheservice.cache.eviction.EvictionPolicyType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for the entity cache, bound from the {@code cache.*} properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private int maxSize = 5;
+    /**
+     * Heap budget in bytes, estimated per entry from the entity's retained size. When positive it
+     * replaces {@code maxSize} as the eviction limit; 0 bounds the cache by entry count.
+     */
+    private long maxWeightBytes = 0;
+    private long expirationMillis = 60000;
+    /**
+     * Whether {@code expirationMillis} counts from the last access or from the write, or whether an
+     * {@link com.example.cacheservice.cache.Expiry} bean decides. Entries written with their own TTL
+     * use it in place of {@code expirationMillis}.
+     */
+    private ExpiryMode expiryMode = ExpiryMode.AFTER_ACCESS;
+    /** How often the expiry timer wheel is advanced. */
+    private long expiryTickMillis = 1000;
+    private Eviction eviction = new Eviction();
+    private Adaptive adaptive = new Adaptive();
+    private Refresh refresh = new Refresh();
+    private Negative negative = new Negative();
+    private NameIndex nameIndex = new NameIndex();
+    private OffHeap offHeap = new OffHeap();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Async async = new Async();
+    private Snapshot snapshot = new Snapshot();
+    private Preload preload = new Preload();
+    private Cluster cluster = new Cluster();
+    private BinaryProtocol binaryProtocol = new BinaryProtocol();
+    /** Extra named caches over the same table, each with its own capacity, expiry and threads. */
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public static CacheProperties of(int maxSize, long expirationMillis) {
+        CacheProperties properties = new CacheProperties();
+        properties.setMaxSize(maxSize);
+        properties.setExpirationMillis(expirationMillis);
+        return properties;
+    }
+
+    @Data
+    public static class Eviction {
+        private EvictionPolicyType policy = EvictionPolicyType.LRU;
+        /** Share of capacity given to the W-TinyLFU admission window. */
+        private int windowPercent = 1;
+        /** Share of the main space given to the protected segment (SLRU and W-TinyLFU). */
+        private int protectedPercent = 80;
+
+        public EvictionPolicy createPolicy(long maximum) {
+            return policy.create(maximum, windowPercent, protectedPercent);
+        }
+
+        public EvictionPolicy createPolicy(long maximum, long expectedEntries) {
+            return policy.create(maximum, expectedEntries, windowPercent, protectedPercent);
+        }
+    }
+
+    @Data
+    public static class Adaptive {
+        /**
+         * Move the capacity between {@code minPercent} and {@code maxPercent} of {@code maxSize} (or of
+         * {@code maxWeightBytes}) by watching heap occupancy after GC and the share of time spent in GC.
+         */
+        private boolean enabled = false;
+        private int minPercent = 25;
+        private int maxPercent = 100;
+        /** How often heap pressure is sampled and the capacity adjusted. */
+        private long intervalMillis = 5000;
+        /** Largest change per adjustment, as a share of the configured capacity, so shrinking evicts gradually. */
+        private int stepPercent = 5;
+        /** Heap occupancy after the last GC above which the cache shrinks. */
+        private int shrinkAboveHeapPercent = 80;
+        /** Heap occupancy after the last GC below which the cache may grow again. */
+        private int growBelowHeapPercent = 60;
+        /** Share of wall-clock time spent in GC over one interval above which the cache shrinks. */
+        private int shrinkAboveGcPercent = 10;
+    }
+
+    @Data
+    public static class Refresh {
+        /**
+         * Age after which a read triggers an asynchronous reload while still returning the
+         * current value; 0 disables refresh-ahead. Independent of expiry.
+         */
+        private long afterWriteMillis = 0;
+        private int threads = 2;
+        private int queueCapacity = 1000;
+    }
+
+    @Data
+    public static class Negative {
+        /** Remember ids that are missing from the DB so repeated lookups skip the repository. */
+        private boolean enabled = true;
+        private int maxSize = 10000;
+        private long ttlMillis = 5000;
+    }
+
+    @Data
+    public static class NameIndex {
+        /** Index cached entities by name for lookups by name; always off in cluster mode. */
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class OffHeap {
+        /** When enabled, entries evicted from the heap are kept off-heap before going to the repository. */
+        private boolean enabled = false;
+        private long maxBytes = 64L * 1024 * 1024;
+        private int slabBytes = 1024 * 1024;
+        /** Backing file for memory-mapped slabs; direct buffers are used when unset. */
+        private String mappedFile;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /** When enabled, add() and evictions are persisted asynchronously in batches. */
+        private boolean enabled = false;
+        private int queueCapacity = 10000;
+        private int flushSize = 500;
+        private long flushIntervalMillis = 1000;
+        /** How long a writer waits for queue space before persisting on its own thread. */
+        private long offerTimeoutMillis = 100;
+    }
+
+    @Data
+    public static class Async {
+        /** Platform threads for repository calls made by the asynchronous API. */
+        private int threads = 16;
+        /** Tasks that may wait for a thread; beyond this, asynchronous calls are rejected. */
+        private int queueCapacity = 1000;
+        /** Run each task on a virtual thread instead when the runtime supports them (Java 21+). */
+        private boolean virtualThreads = true;
+    }
+
+    @Data
+    public static class Snapshot {
+        /** Save the cache to {@code file} on shutdown and load it back on startup. */
+        private boolean enabled = false;
+        private String file = "cache-snapshot.bin";
+        /** Also save periodically while running; 0 saves only on shutdown. */
+        private long intervalMillis = 0;
+        /** Threads used to decode the snapshot on startup. */
+        private int loadThreads = 4;
+    }
+
+    @Data
+    public static class Preload {
+        /** Fill the cache from the repository on startup, before the service is ready. */
+        private boolean enabled = false;
+        private Source source = Source.ALL;
+        /** Id range for {@link Source#ID_RANGE}, inclusive. */
+        private long fromId = 1;
+        private long toId = Long.MAX_VALUE;
+        /** File with one id per line, hottest first, for {@link Source#HOT_KEYS}. */
+        private String hotKeysFile;
+        private int pageSize = 500;
+        /** Concurrent repository queries. */
+        private int parallelism = 2;
+        /** Upper bound on rows read per second across all workers; 0 means unlimited. */
+        private long maxRowsPerSecond = 0;
+
+        public enum Source {
+            /** Any entities, up to {@code cache.maxSize}. */
+            ALL,
+            ID_RANGE,
+            HOT_KEYS
+        }
+    }
+
+    @Data
+    public static class Cluster {
+        /**
+         * Shard the cache across {@code members}: each id is owned by one node, other nodes keep a
+         * small near-cache, and writes invalidate every node. All members must share one database.
+         * Cannot be combined with write-behind, the off-heap tier or regions.
+         */
+        private boolean enabled = false;
+        /** Base URL the other members use to reach this node; must be one of {@code members}. */
+        private String self;
+        /**
+         * Base URLs of every node, this one included, e.g. {@code http://localhost:8081}. Only requests from
+         * the addresses these hosts resolve to may call the {@code /internal/cluster} endpoints.
+         */
+        private List<String> members = new ArrayList<>();
+        /** Points per node on the hash ring; more points spread ids more evenly. */
+        private int virtualNodes = 128;
+        private int nearCacheSize = 1000;
+        /** Also bounds how long a lost invalidation can leave a stale near-cache entry. */
+        private long nearCacheTtlMillis = 5000;
+        private long requestTimeoutMillis = 1000;
+    }
+
+    @Data
+    public static class BinaryProtocol {
+        /** Serve get/put/delete/multi-get over a pipelined binary TCP protocol next to the REST API. */
+        private boolean enabled = false;
+        private String bindAddress = "0.0.0.0";
+        /** 0 picks a free port. */
+        private int port = 11311;
+        /** Larger request frames close the connection. */
+        private int maxFrameBytes = 1 << 20;
+        /** Requests in flight per connection before the server stops reading from it. */
+        private int maxPipelinedRequests = 1024;
+    }
+
+    /**
+     * Overrides for one named region; anything left unset is taken from the top-level settings.
+     * Snapshots, preloading, the off-heap tier, clustering and the binary protocol stay with the
+     * default cache.
+     */
+    @Data
+    public static class Region {
+        private Integer maxSize;
+        private Long maxWeightBytes;
+        private Long expirationMillis;
+        private ExpiryMode expiryMode;
+        private Eviction eviction;
+        private Adaptive adaptive;
+        private Refresh refresh;
+        private Async async;
+
+        public CacheProperties resolve(CacheProperties defaults) {
+            CacheProperties resolved = new CacheProperties();
+            resolved.setMaxSize(maxSize != null ? maxSize : defaults.getMaxSize());
+            resolved.setMaxWeightBytes(maxWeightBytes != null ? maxWeightBytes : defaults.getMaxWeightBytes());
+            resolved.setExpirationMillis(expirationMillis != null ? expirationMillis : defaults.getExpirationMillis());
+            resolved.setExpiryMode(expiryMode != null ? expiryMode : defaults.getExpiryMode());
+            resolved.setExpiryTickMillis(defaults.getExpiryTickMillis());
+            resolved.setEviction(eviction != null ? eviction : defaults.getEviction());
+            resolved.setAdaptive(adaptive != null ? adaptive : defaults.getAdaptive());
+            resolved.setRefresh(refresh != null ? refresh : defaults.getRefresh());
+            resolved.setAsync(async != null ? async : defaults.getAsync());
+            resolved.setNegative(defaults.getNegative());
+            resolved.setNameIndex(defaults.getNameIndex());
+            resolved.setWriteBehind(defaults.getWriteBehind());
+            return resolved;
+        }
+    }
+}
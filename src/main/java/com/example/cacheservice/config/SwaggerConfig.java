@@ -1,5 +1,6 @@
 package com.example.cacheservice.config;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.ReflectionUtils;
@@ -32,8 +33,8 @@ public class SwaggerConfig {
     }
 
     @Bean
-    public static Object springfoxHandlerProviderBeanPostProcessor() {
-        return new org.springframework.beans.factory.config.BeanPostProcessor() {
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
             @Override
             public Object postProcessAfterInitialization(Object bean, String beanName) {
                 if (bean instanceof WebMvcRequestHandlerProvider || bean instanceof WebFluxRequestHandlerProvider) {
@@ -4,28 +4,58 @@ package com.example.cacheservice.controller;
 import com.example.cacheservice.dto.MyEntityDTO;
 import com.example.cacheservice.entity.MyEntity;
 import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.exception.VersionConflictException;
+import com.example.cacheservice.service.AsyncCacheService;
+import com.example.cacheservice.service.CacheRegions;
 import com.example.cacheservice.service.CacheService;
+import com.example.cacheservice.service.CacheStats;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * REST controller to demonstrate the caching operations.
+ * <p>
+ * Single-entity and batch get/add/remove return futures, so the request thread is released while a
+ * miss or write waits on the DB; cache hits are answered before the handler returns.
+ * <p>
+ * Every endpoint serves the default cache under {@code /api/cache} and a named region under
+ * {@code /api/cache/regions/{region}}; an unknown region is a 404.
  */
 @RestController
-@RequestMapping("/api/cache")
+@RequestMapping({"/api/cache", "/api/cache/regions/{region}"})
 public class CacheController {
 
 
 
+    private static final String NDJSON = "application/x-ndjson";
+
     //private static final Logger logger = LoggerFactory.getLogger(CacheController.class);
     Logger logger;
-    private final CacheService cacheService;
+    private final CacheRegions regions;
+    private final ObjectMapper objectMapper;
 
-    public CacheController(CacheService cacheService,Logger logger) {
-        this.cacheService = cacheService;
+    public CacheController(CacheRegions regions, Logger logger, ObjectMapper objectMapper) {
+        this.regions = regions;
         this.logger=logger;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/test")
@@ -33,51 +63,224 @@ public class CacheController {
         logger.info("Testing...");
         return "Success";
     }
+    /**
+     * Saves the entity. With an {@code If-Match} header carrying one ETag from a previous read, the
+     * save only happens if the entity has not changed since (412 otherwise); without one, or with
+     * {@code *}, the last write wins. {@code ttlMillis} gives the cached copy its own lifetime.
+     */
     @PostMapping("/add")
-    public MyEntityDTO add(@RequestBody MyEntityDTO dto) {
-        logger.info("Adding entity to cache: {}", dto);
-        MyEntity entity = toEntity(dto);
-        try {
-            cacheService.add(entity);
-        } catch (CacheException e) {
-            throw new RuntimeException("Failed to add entity to cache", e);
+    public CompletableFuture<ResponseEntity<MyEntityDTO>> add(@PathVariable(required = false) String region,
+                                                              @RequestBody MyEntityDTO dto,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                              String ifMatch,
+                                                              @RequestParam(required = false) Long ttlMillis) {
+        logger.debug("Adding entity to cache: {}", dto);
+        if (ttlMillis != null && ttlMillis <= 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
-        return dto;
+        AsyncCacheService service = regions.asyncService(region);
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            CompletableFuture<MyEntity> added = ttlMillis == null
+                    ? service.addAsync(toEntity(dto))
+                    : service.addAsync(toEntity(dto), ttlMillis);
+            return respond(added, this::withETag, "Failed to add entity to cache");
+        }
+        Long expected = parseETag(ifMatch);
+        if (expected == null || dto.getId() == null) {
+            // Not a tag this service handed out, so it cannot match the current version
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+        }
+        CompletableFuture<MyEntity> replaced = ttlMillis == null
+                ? service.replaceAsync(toEntity(dto), expected)
+                : service.replaceAsync(toEntity(dto), expected, ttlMillis);
+        return replaced.handle((stored, ex) -> {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause instanceof VersionConflictException) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            if (cause != null) {
+                throw new RuntimeException("Failed to add entity to cache", cause);
+            }
+            return withETag(stored);
+        });
     }
 
     @DeleteMapping("/remove")
-    public void remove(@RequestBody MyEntityDTO dto) {
-        logger.info("Removing entity from cache: {}", dto);
-        MyEntity entity = toEntity(dto);
-        try {
-            cacheService.remove(entity);
-        } catch (CacheException e) {
-            throw new RuntimeException("Failed to remove entity to cache", e);
-        }
+    public CompletableFuture<Void> remove(@PathVariable(required = false) String region, @RequestBody MyEntityDTO dto) {
+        logger.debug("Removing entity from cache: {}", dto);
+        return respond(regions.asyncService(region).removeAsync(toEntity(dto)), Function.identity(),
+                "Failed to remove entity to cache");
     }
 
     @DeleteMapping("/removeAll")
-    public void removeAll() {
+    public void removeAll(@PathVariable(required = false) String region) {
         logger.info("Removing all entities from cache and DB");
-        cacheService.removeAll();
+        regions.service(region).removeAll();
     }
 
+    /**
+     * Answers 304 without a body when {@code If-None-Match} lists the entity's current ETag. Entities
+     * whose write is still queued have no version yet, so they carry no ETag and are always sent.
+     */
     @GetMapping("/get/{id}")
-    public MyEntityDTO get(@PathVariable Long id) {
-        logger.info("Fetching entity from cache/DB with id: {}", id);
-        MyEntity entity = null;
-        try {
-            entity = cacheService.get(new MyEntity(id, null));
-        } catch (CacheException e) {
-            throw new RuntimeException("Failed to get entity to cache", e);
-        }
-        return toDTO(entity);
+    public CompletableFuture<ResponseEntity<MyEntityDTO>> get(@PathVariable(required = false) String region,
+                                                              @PathVariable Long id,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                              String ifNoneMatch) {
+        logger.debug("Fetching entity from cache/DB with id: {}", id);
+        return respond(regions.asyncService(region).getAsync(id), entity -> {
+            String etag = etag(entity);
+            if (etag != null && ifNoneMatch != null && matchesAny(ifNoneMatch, entity.getVersion())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return withETag(entity);
+        }, "Failed to get entity to cache");
+    }
+
+    /** Every entity with the given name, possibly none. */
+    @GetMapping("/byName")
+    public CompletableFuture<List<MyEntityDTO>> getByName(@PathVariable(required = false) String region,
+                                                          @RequestParam String name) {
+        logger.debug("Fetching entities from cache/DB with name: {}", name);
+        return respond(regions.asyncService(region).getByNameAsync(name),
+                found -> found.stream().map(this::toDTO).collect(Collectors.toList()),
+                "Failed to get entities by name");
     }
 
     @PostMapping("/clear")
-    public void clear() {
+    public void clear(@PathVariable(required = false) String region) {
         logger.info("Clearing cache (DB untouched)");
-        cacheService.clear();
+        regions.service(region).clear();
+    }
+
+    @PostMapping("/batch/get")
+    public CompletableFuture<List<MyEntityDTO>> getBatch(@PathVariable(required = false) String region,
+                                                         @RequestBody List<Long> ids) {
+        logger.debug("Fetching {} entities from cache/DB", ids.size());
+        return respond(regions.asyncService(region).getAllAsync(ids),
+                found -> found.values().stream().map(this::toDTO).collect(Collectors.toList()),
+                "Failed to get entities from cache");
+    }
+
+    @PostMapping("/batch/add")
+    public CompletableFuture<List<MyEntityDTO>> addBatch(@PathVariable(required = false) String region,
+                                                    @RequestBody List<MyEntityDTO> dtos) {
+        logger.debug("Adding {} entities to cache", dtos.size());
+        List<MyEntity> entities = dtos.stream().map(this::toEntity).collect(Collectors.toList());
+        return respond(regions.asyncService(region).addAllAsync(entities),
+                stored -> stored.stream().map(this::toDTO).collect(Collectors.toList()),
+                "Failed to add entities to cache");
+    }
+
+    @DeleteMapping("/batch/remove")
+    public CompletableFuture<Void> removeBatch(@PathVariable(required = false) String region,
+                                               @RequestBody List<Long> ids) {
+        logger.debug("Removing {} entities from cache and DB", ids.size());
+        return respond(regions.asyncService(region).removeAllByIdAsync(ids), Function.identity(),
+                "Failed to remove entities from cache");
+    }
+
+    @PostMapping("/batch/invalidate")
+    public void invalidateBatch(@PathVariable(required = false) String region, @RequestBody List<Long> ids) {
+        logger.debug("Invalidating {} entities in cache (DB untouched)", ids.size());
+        regions.service(region).invalidateAll(ids);
+    }
+
+    /**
+     * Streams entities as NDJSON, one JSON object per line: those held in this node's cache
+     * ({@code source=cache}, unordered) or every row in the DB ({@code source=db}, by id), optionally
+     * limited to ids in [fromId, toId]. Entities are written as they are read, so memory use does not
+     * depend on how many there are.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void export(@PathVariable(required = false) String region,
+                       @RequestParam(defaultValue = "cache") String source,
+                       @RequestParam(defaultValue = "" + Long.MIN_VALUE) long fromId,
+                       @RequestParam(defaultValue = "" + Long.MAX_VALUE) long toId,
+                       HttpServletResponse response) throws CacheException, IOException {
+        CacheService cacheService = regions.service(region);
+        boolean fromDb;
+        if ("db".equalsIgnoreCase(source)) {
+            fromDb = true;
+        } else if ("cache".equalsIgnoreCase(source)) {
+            fromDb = false;
+        } else {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "source must be cache or db");
+            return;
+        }
+        logger.info("Exporting {} entities with ids {}..{}", fromDb ? "stored" : "cached", fromId, toId);
+        response.setContentType(NDJSON);
+        // Closing the generator flushes it but leaves the response stream to the container
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            Consumer<MyEntity> writer = entity -> {
+                try {
+                    json.writeObject(toDTO(entity));
+                    json.writeRaw('\n');
+                } catch (IOException ex) {
+                    // Most likely the client went away; stops the scan
+                    throw new UncheckedIOException(ex);
+                }
+            };
+            if (fromDb) {
+                cacheService.forEachStored(fromId, toId, writer);
+            } else {
+                cacheService.forEachCached(fromId, toId, writer);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @GetMapping("/stats")
+    public CacheStats stats(@PathVariable(required = false) String region) {
+        return regions.service(region).stats();
+    }
+
+    private static <T, R> CompletableFuture<R> respond(CompletableFuture<T> result, Function<T, R> mapper,
+                                                       String failure) {
+        return result.handle((value, ex) -> {
+            if (ex != null) {
+                throw new RuntimeException(failure, ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+            return mapper.apply(value);
+        });
+    }
+
+    private ResponseEntity<MyEntityDTO> withETag(MyEntity entity) {
+        String etag = etag(entity);
+        return etag == null ? ResponseEntity.ok(toDTO(entity)) : ResponseEntity.ok().eTag(etag).body(toDTO(entity));
+    }
+
+    private static String etag(MyEntity entity) {
+        return entity.getVersion() == null ? null : "\"" + entity.getVersion() + "\"";
+    }
+
+    /** Weak comparison, as If-None-Match calls for: a {@code W/} prefix is ignored. */
+    private static boolean matchesAny(String header, long version) {
+        for (String tag : header.split(",")) {
+            Long parsed = tag.trim().equals("*") ? Long.valueOf(version) : parseETag(tag);
+            if (parsed != null && parsed == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The version in a single ETag, or {@code null} if it is not one this service issued. */
+    private static Long parseETag(String tag) {
+        String value = tag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
     }
 
     private MyEntity toEntity(MyEntityDTO dto) {
@@ -88,6 +291,7 @@ public class CacheController {
         MyEntityDTO dto = new MyEntityDTO();
         dto.setId(entity.getId());
         dto.setName(entity.getName());
+        dto.setVersion(entity.getVersion());
         return dto;
     }
 }
@@ -0,0 +1,80 @@
+package com.example.cacheservice.controller;
+
+import com.example.cacheservice.cluster.InvalidationMessage;
+import com.example.cacheservice.cluster.MemberAddresses;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.dto.MyEntityDTO;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.ForbiddenException;
+import com.example.cacheservice.service.ClusteredCacheService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Endpoints other cluster members call; not meant for clients.
+ * <p>
+ * They are served on the same port as the public API, so a request is refused with 403 unless it comes
+ * from the address of one of {@code cache.cluster.members}; otherwise any client could flush a member's
+ * cache. Where a proxy or NAT hides the members' own addresses, block {@code /internal/cluster/**} at
+ * the edge instead.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+@ConditionalOnProperty(prefix = "cache.cluster", name = "enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusteredCacheService cacheService;
+    private final MemberAddresses members;
+
+    public ClusterController(ClusteredCacheService cacheService, CacheProperties properties) {
+        this.cacheService = cacheService;
+        this.members = new MemberAddresses(properties.getCluster().getMembers());
+    }
+
+    @GetMapping("/entities/{id}")
+    public CompletableFuture<ResponseEntity<MyEntityDTO>> get(@PathVariable Long id, HttpServletRequest request) {
+        requireMember(request);
+        return cacheService.getOwned(List.of(id)).thenApply(found -> {
+            MyEntity entity = found.get(id);
+            return entity == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(toDTO(entity));
+        });
+    }
+
+    @PostMapping("/entities")
+    public CompletableFuture<List<MyEntityDTO>> getBatch(@RequestBody List<Long> ids, HttpServletRequest request) {
+        requireMember(request);
+        return cacheService.getOwned(ids).thenApply(this::toDTOs);
+    }
+
+    @PostMapping("/invalidate")
+    public void invalidate(@RequestBody InvalidationMessage message, HttpServletRequest request) {
+        requireMember(request);
+        cacheService.onInvalidation(message);
+    }
+
+    private void requireMember(HttpServletRequest request) {
+        if (!members.contains(request.getRemoteAddr())) {
+            throw new ForbiddenException("Only cluster members may call " + request.getRequestURI());
+        }
+    }
+
+    private List<MyEntityDTO> toDTOs(Map<Long, MyEntity> found) {
+        return found.values().stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    private MyEntityDTO toDTO(MyEntity entity) {
+        MyEntityDTO dto = new MyEntityDTO();
+        dto.setId(entity.getId());
+        dto.setName(entity.getName());
+        dto.setVersion(entity.getVersion());
+        return dto;
+    }
+}
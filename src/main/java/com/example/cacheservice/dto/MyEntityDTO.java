@@ -7,6 +7,8 @@ import lombok.Data;
 public class MyEntityDTO {
     private Long id;
     private String name;
+    /** Set on responses; ignored on writes, which use the {@code If-Match} header instead. */
+    private Long version;
 
     public Long getId() {
         return id;
@@ -23,4 +25,12 @@ public class MyEntityDTO {
     public void setName(String name) {
         this.name = name;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -5,7 +5,7 @@ import javax.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "MY_ENTITY")
+@Table(name = "MY_ENTITY", indexes = @Index(name = "IDX_MY_ENTITY_NAME", columnList = "name"))
 @Getter
 @Setter
 @Data
@@ -18,12 +18,22 @@ public class MyEntity {
 
     private String name;
 
+    /** Bumped by every update; a write based on an older version is rejected. */
+    @Version
+    private Long version;
+
 
     public MyEntity(Long id, String name) {
         this.id = id;
         this.name = name;
     }
 
+    public MyEntity(Long id, String name, Long version) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -40,6 +50,14 @@ public class MyEntity {
         this.name = name;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Unique id can be the database id here, or any other unique field.
     // getId() will serve as getId() from requirements.
 }
@@ -0,0 +1,11 @@
+package com.example.cacheservice.exception;
+
+/**
+ * A conditional write was rejected because the entity changed, or was removed, after the expected
+ * version was read.
+ */
+public class VersionConflictException extends CacheException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.cacheservice.protocol;
+
+import com.example.cacheservice.cache.EntityCodec;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.CacheException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Minimal client for {@link BinaryProtocolServer}, mainly for benchmarks and internal callers.
+ * <p>
+ * Calls never wait for the server: each one writes its request and returns a future, so issuing many
+ * calls before joining them pipelines them over the single connection. A reader thread completes the
+ * futures as responses arrive, in request order. Server-side failures complete the future with a
+ * {@link CacheException}; a lost connection fails every outstanding call with an {@link IOException}.
+ * Safe for use by several threads.
+ */
+public class BinaryCacheClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final Queue<Call<?>> inFlight = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private int nextRequestId;
+    private volatile boolean closed;
+
+    public BinaryCacheClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        reader = new Thread(this::readResponses, "cache-binary-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Completes with the entity, or {@code null} if it exists neither in the cache nor in the DB. */
+    public CompletableFuture<MyEntity> get(long id) {
+        return send(BinaryProtocol.GET, 8, buffer -> buffer.putLong(id),
+                response -> response.status == BinaryProtocol.NOT_FOUND ? null : BinaryProtocol.decode(response.body));
+    }
+
+    /** Completes with the stored entity, carrying the id assigned by the DB for new entities. */
+    public CompletableFuture<MyEntity> put(MyEntity entity) {
+        byte[] name = EntityCodec.nameBytes(entity);
+        return send(BinaryProtocol.PUT, EntityCodec.encodedSize(name),
+                buffer -> BinaryProtocol.encode(entity, name, buffer),
+                response -> BinaryProtocol.decode(response.body));
+    }
+
+    public CompletableFuture<Void> delete(long id) {
+        return send(BinaryProtocol.DELETE, 8, buffer -> buffer.putLong(id), response -> null);
+    }
+
+    /** Completes with the entities found for the ids; ids that exist nowhere are left out. */
+    public CompletableFuture<Map<Long, MyEntity>> getAll(Collection<Long> ids) {
+        return send(BinaryProtocol.MGET, 4 + 8 * ids.size(), buffer -> {
+            buffer.putInt(ids.size());
+            ids.forEach(buffer::putLong);
+        }, response -> {
+            int count = response.body.getInt();
+            Map<Long, MyEntity> found = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                MyEntity entity = BinaryProtocol.decode(response.body);
+                found.put(entity.getId(), entity);
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(new IOException("Client closed"));
+    }
+
+    private <T> CompletableFuture<T> send(byte opcode, int payloadBytes, PayloadWriter payload,
+                                          Function<Response, T> parser) {
+        Call<T> call = new Call<>(parser);
+        try {
+            // The queue order must match the order requests hit the socket
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Client closed");
+                }
+                call.requestId = nextRequestId++;
+                ByteBuffer buffer = BinaryProtocol.frame(opcode, call.requestId, payloadBytes);
+                payload.write(buffer);
+                buffer.flip();
+                inFlight.add(call);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException ex) {
+            call.future.completeExceptionally(ex);
+        }
+        return call.future;
+    }
+
+    private void readResponses() {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            while (!closed) {
+                header.clear();
+                readFully(header);
+                ByteBuffer frame = ByteBuffer.allocate(header.getInt(0));
+                readFully(frame);
+                frame.flip();
+                Response response = new Response(frame.get(), frame.getInt(), frame);
+                Call<?> call = inFlight.poll();
+                if (call == null || call.requestId != response.requestId) {
+                    throw new IOException("Response " + response.requestId + " does not match any request");
+                }
+                call.complete(response);
+            }
+        } catch (IOException ex) {
+            failAll(closed ? new IOException("Client closed") : ex);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed by server");
+            }
+        }
+    }
+
+    private void failAll(IOException cause) {
+        Call<?> call;
+        while ((call = inFlight.poll()) != null) {
+            call.future.completeExceptionally(cause);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(ByteBuffer buffer);
+    }
+
+    private static final class Response {
+
+        final byte status;
+        final int requestId;
+        final ByteBuffer body;
+
+        Response(byte status, int requestId, ByteBuffer body) {
+            this.status = status;
+            this.requestId = requestId;
+            this.body = body;
+        }
+    }
+
+    private static final class Call<T> {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Function<Response, T> parser;
+        int requestId;
+
+        Call(Function<Response, T> parser) {
+            this.parser = parser;
+        }
+
+        void complete(Response response) {
+            if (response.status == BinaryProtocol.ERROR) {
+                future.completeExceptionally(new CacheException(BinaryProtocol.decodeError(response.body)));
+                return;
+            }
+            try {
+                future.complete(parser.apply(response));
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+}
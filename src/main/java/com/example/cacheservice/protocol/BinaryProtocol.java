@@ -0,0 +1,91 @@
+package com.example.cacheservice.protocol;
+
+import com.example.cacheservice.cache.EntityCodec;
+import com.example.cacheservice.entity.MyEntity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format shared by {@link BinaryProtocolServer} and {@link BinaryCacheClient}.
+ * <p>
+ * Every message is a frame: a big-endian {@code int} with the length of the rest of the frame, then
+ * a one-byte opcode (requests) or status (responses), then an {@code int} request id that the server
+ * echoes back, then the payload. Entities use the {@link EntityCodec} layout.
+ * <pre>
+ * GET     id:long                     -&gt; OK entity | NOT_FOUND
+ * PUT     entity (id NO_ID for new)   -&gt; OK entity, with the id the DB assigned
+ * DELETE  id:long                     -&gt; OK
+ * MGET    count:int, count x id:long  -&gt; OK count:int, count x entity (ids that exist nowhere are left out)
+ * any     ...                         -&gt; ERROR message:int-length-prefixed UTF-8
+ * </pre>
+ * A client may send any number of requests without waiting; responses come back in request order.
+ */
+public final class BinaryProtocol {
+
+    public static final byte GET = 1;
+    public static final byte PUT = 2;
+    public static final byte DELETE = 3;
+    public static final byte MGET = 4;
+
+    public static final byte OK = 0;
+    public static final byte NOT_FOUND = 1;
+    public static final byte ERROR = 2;
+
+    /** Id sent in a PUT for an entity the DB should assign an id to. */
+    public static final long NO_ID = Long.MIN_VALUE;
+
+    /** Length prefix, opcode or status, request id. */
+    static final int HEADER_BYTES = 4 + 1 + 4;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Starts a frame with room for {@code payloadBytes}; the caller writes the payload and flips.
+     */
+    static ByteBuffer frame(byte code, int requestId, int payloadBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        buffer.putInt(1 + 4 + payloadBytes);
+        buffer.put(code);
+        buffer.putInt(requestId);
+        return buffer;
+    }
+
+    static ByteBuffer entityFrame(byte code, int requestId, MyEntity entity) {
+        byte[] name = EntityCodec.nameBytes(entity);
+        ByteBuffer buffer = frame(code, requestId, EntityCodec.encodedSize(name));
+        encode(entity, name, buffer);
+        return buffer.flip();
+    }
+
+    static ByteBuffer errorFrame(int requestId, String message) {
+        byte[] text = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = frame(ERROR, requestId, 4 + text.length);
+        buffer.putInt(text.length).put(text);
+        return buffer.flip();
+    }
+
+    static void encode(MyEntity entity, byte[] nameBytes, ByteBuffer buffer) {
+        if (entity.getId() == null) {
+            // The codec needs an id; NO_ID tells the server to let the DB assign one
+            EntityCodec.encode(new MyEntity(NO_ID, entity.getName()), nameBytes, buffer);
+        } else {
+            EntityCodec.encode(entity, nameBytes, buffer);
+        }
+    }
+
+    static MyEntity decode(ByteBuffer buffer) {
+        MyEntity entity = EntityCodec.decode(buffer);
+        if (entity.getId() == NO_ID) {
+            entity.setId(null);
+        }
+        return entity;
+    }
+
+    static String decodeError(ByteBuffer buffer) {
+        byte[] text = new byte[buffer.getInt()];
+        buffer.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
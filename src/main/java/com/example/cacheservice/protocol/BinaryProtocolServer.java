@@ -0,0 +1,322 @@
+package com.example.cacheservice.protocol;
+
+import com.example.cacheservice.cache.EntityCodec;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.service.AsyncCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking TCP endpoint speaking {@link BinaryProtocol}, for internal callers that cannot afford
+ * HTTP and JSON on every lookup.
+ * <p>
+ * One selector thread accepts, reads and writes for every connection. Each decoded request is handed
+ * straight to the {@link AsyncCacheService}; hits complete on the selector thread, misses complete on
+ * the service's I/O executor and wake the selector up. Responses are queued per connection in request
+ * order and written with a single gathering write, so a pipelining client pays one syscall for many
+ * answers. A connection with too many requests in flight is not read from until some complete.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cache.binaryProtocol", name = "enabled", havingValue = "true")
+public class BinaryProtocolServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryProtocolServer.class);
+
+    private final AsyncCacheService cacheService;
+    private final int maxFrameBytes;
+    private final int maxPipelinedRequests;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread selectorThread;
+    // Connections with responses completed off the selector thread
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    @Autowired
+    public BinaryProtocolServer(AsyncCacheService cacheService, CacheProperties properties) throws IOException {
+        this(cacheService, properties.getBinaryProtocol());
+    }
+
+    public BinaryProtocolServer(AsyncCacheService cacheService, CacheProperties.BinaryProtocol settings)
+            throws IOException {
+        this.cacheService = cacheService;
+        this.maxFrameBytes = settings.getMaxFrameBytes();
+        this.maxPipelinedRequests = Math.max(1, settings.getMaxPipelinedRequests());
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(settings.getBindAddress(), settings.getPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            serverChannel.close();
+            selector.close();
+            throw ex;
+        }
+        this.selectorThread = new Thread(this::run, "cache-binary-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("Binary cache protocol listening on {}", serverChannel.getLocalAddress());
+    }
+
+    /** The port actually bound, which differs from the configured one when that was 0. */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        selectorThread.join(5000);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+                selector.selectedKeys().clear();
+                Connection connection;
+                while ((connection = completed.poll()) != null) {
+                    flush(connection);
+                }
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            logger.error("Binary cache protocol selector failed: {}", ex.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        try {
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isReadable()) {
+                read(connection);
+            }
+            if (key.isValid()) {
+                flush(connection);
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Closing binary protocol connection: {}", ex.getMessage());
+            closeQuietly(key);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            throw new IOException("Connection closed by peer");
+        }
+        dispatchBuffered(connection);
+    }
+
+    /** Dispatches every complete frame in the input buffer, up to the pipelining limit. */
+    private void dispatchBuffered(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 4 && connection.pending.size() < maxPipelinedRequests) {
+            int length = in.getInt(in.position());
+            if (length < 5 || length > maxFrameBytes) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            ByteBuffer frame = in.slice().position(4).limit(4 + length);
+            in.position(in.position() + 4 + length);
+            dispatch(connection, frame);
+        }
+        // Stopped by the pipelining limit with whole frames left over, rather than by a partial frame
+        connection.backlogged = connection.pending.size() >= maxPipelinedRequests && in.remaining() >= 4;
+        // Keep a partial frame, growing the buffer if that frame is bigger than it
+        in.compact();
+        if (in.position() >= 4 && in.position() == in.capacity()) {
+            int needed = 4 + in.getInt(0);
+            if (needed > in.capacity()) {
+                connection.in = ByteBuffer.allocate(needed).put(in.flip());
+            }
+        }
+    }
+
+    private void dispatch(Connection connection, ByteBuffer frame) {
+        byte opcode = frame.get();
+        int requestId = frame.getInt();
+        CompletableFuture<ByteBuffer> response;
+        try {
+            response = execute(opcode, requestId, frame).exceptionally(ex -> errorFrame(requestId, ex));
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            response = CompletableFuture.completedFuture(
+                    BinaryProtocol.errorFrame(requestId, "Malformed request: " + ex));
+        }
+        connection.pending.add(response);
+        response.whenComplete((r, ex) -> {
+            if (Thread.currentThread() != selectorThread) {
+                completed.add(connection);
+                selector.wakeup();
+            }
+        });
+    }
+
+    private CompletableFuture<ByteBuffer> execute(byte opcode, int requestId, ByteBuffer payload) {
+        switch (opcode) {
+            case BinaryProtocol.GET:
+                // The batch form reports a missing id as absent rather than as a failure
+                long id = payload.getLong();
+                return cacheService.getAllAsync(List.of(id)).thenApply(found -> found.containsKey(id)
+                        ? BinaryProtocol.entityFrame(BinaryProtocol.OK, requestId, found.get(id))
+                        : BinaryProtocol.frame(BinaryProtocol.NOT_FOUND, requestId, 0).flip());
+            case BinaryProtocol.PUT:
+                return cacheService.addAsync(BinaryProtocol.decode(payload))
+                        .thenApply(stored -> BinaryProtocol.entityFrame(BinaryProtocol.OK, requestId, stored));
+            case BinaryProtocol.DELETE:
+                return cacheService.removeAsync(new MyEntity(payload.getLong(), null))
+                        .thenApply(done -> BinaryProtocol.frame(BinaryProtocol.OK, requestId, 0).flip());
+            case BinaryProtocol.MGET:
+                int count = payload.getInt();
+                if (count < 0 || count > payload.remaining() / 8) {
+                    throw new IllegalArgumentException("bad id count " + count);
+                }
+                List<Long> ids = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ids.add(payload.getLong());
+                }
+                return cacheService.getAllAsync(ids).thenApply(found -> entitiesFrame(requestId, found.values()));
+            default:
+                return CompletableFuture.completedFuture(
+                        BinaryProtocol.errorFrame(requestId, "Unknown opcode " + opcode));
+        }
+    }
+
+    private void flush(Connection connection) throws IOException {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        while (true) {
+            while (!connection.pending.isEmpty() && connection.pending.peek().isDone()) {
+                connection.out.add(connection.pending.poll().join());
+            }
+            if (!connection.backlogged || connection.pending.size() >= maxPipelinedRequests) {
+                break;
+            }
+            // Frames that arrived before the limit was hit are already buffered
+            dispatchBuffered(connection);
+        }
+        if (!connection.out.isEmpty()) {
+            connection.channel.write(connection.out.toArray(new ByteBuffer[0]));
+            while (!connection.out.isEmpty() && !connection.out.peek().hasRemaining()) {
+                connection.out.poll();
+            }
+        }
+        // Stop reading while too many requests are in flight or the peer is not reading its answers
+        boolean saturated = connection.pending.size() + connection.out.size() >= maxPipelinedRequests;
+        int ops = saturated ? 0 : SelectionKey.OP_READ;
+        if (!connection.out.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(ops);
+    }
+
+    private static ByteBuffer entitiesFrame(int requestId, Collection<MyEntity> entities) {
+        List<byte[]> names = new ArrayList<>(entities.size());
+        int size = 4;
+        for (MyEntity entity : entities) {
+            byte[] name = EntityCodec.nameBytes(entity);
+            names.add(name);
+            size += EntityCodec.encodedSize(name);
+        }
+        ByteBuffer buffer = BinaryProtocol.frame(BinaryProtocol.OK, requestId, size);
+        buffer.putInt(entities.size());
+        int i = 0;
+        for (MyEntity entity : entities) {
+            BinaryProtocol.encode(entity, names.get(i++), buffer);
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer errorFrame(int requestId, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return BinaryProtocol.errorFrame(requestId, cause.getMessage());
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Nothing left to do for this connection
+        }
+    }
+
+    /** Per-connection state; only touched by the selector thread. */
+    private static final class Connection {
+
+        final SocketChannel channel;
+        final SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        final ArrayDeque<CompletableFuture<ByteBuffer>> pending = new ArrayDeque<>();
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        boolean backlogged;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+}
@@ -1,10 +1,75 @@
 package com.example.cacheservice.repository;
 
 import com.example.cacheservice.entity.MyEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface MyEntityRepository extends JpaRepository<MyEntity, Long> {
 
+    /** Rows the JDBC driver fetches per round trip when streaming; bounds the memory a cursor holds. */
+    String STREAM_FETCH_SIZE = "500";
+
+    /** One keyset page: the first {@code pageable.getPageSize()} entities with ids in [from, to], by id. */
+    List<MyEntity> findByIdBetweenOrderByIdAsc(Long from, Long to, Pageable pageable);
+
+    List<MyEntity> findByName(String name);
+
+    Optional<MyEntity> findFirstByOrderByIdAsc();
+
+    Optional<MyEntity> findFirstByOrderByIdDesc();
+
+    @Query("select e.version from MyEntity e where e.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /** Pairs of {@code [id, version]} for the ids that exist. */
+    @Query("select e.id, e.version from MyEntity e where e.id in :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Updates the name only if the row is still at {@code version}, bumping the version in the same
+     * statement.
+     *
+     * @return 1 if the row was updated, 0 if it has changed since or does not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("update MyEntity e set e.name = :name, e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int compareAndSet(@Param("id") Long id, @Param("name") String name, @Param("version") long version);
+
+    /**
+     * Entities with ids in [from, to], by id, read through a database cursor. The rows are built with
+     * a constructor expression, so they are never attached to the persistence context and a long
+     * stream does not accumulate them. Must be consumed and closed inside a transaction; see
+     * {@link #forEachByIdBetween}.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select new com.example.cacheservice.entity.MyEntity(e.id, e.name, e.version) from MyEntity e"
+            + " where e.id between :from and :to order by e.id")
+    Stream<MyEntity> streamByIdBetween(@Param("from") Long from, @Param("to") Long to);
+
+    /** Passes every entity with an id in [from, to] to {@code action}, by id, in constant memory. */
+    @Transactional(readOnly = true)
+    default void forEachByIdBetween(Long from, Long to, Consumer<MyEntity> action) {
+        try (Stream<MyEntity> rows = streamByIdBetween(from, to)) {
+            rows.forEach(action);
+        }
+    }
 }
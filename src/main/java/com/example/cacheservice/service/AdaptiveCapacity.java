@@ -0,0 +1,227 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.config.CacheProperties;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Moves a store's capacity between configured bounds according to heap pressure.
+ * <p>
+ * Each {@link #adjust()} looks at the heap occupancy left by the most recent garbage collection and at
+ * the share of time spent collecting since the previous adjustment. Above either threshold the capacity
+ * drops by one step, evicting the policy's coldest entries; with the heap comfortably below its
+ * threshold and the cache full, it grows back by one step. Steps are a fixed share of the configured
+ * capacity, so a pressure spike drains the cache over several intervals rather than all at once.
+ */
+public class AdaptiveCapacity implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveCapacity.class);
+
+    public enum Decision {
+        SHRINK, GROW, HOLD
+    }
+
+    /** What the heap looks like to the controller; {@link GcNotifications} in production. */
+    public interface HeapPressure extends AutoCloseable {
+
+        /** Share of the maximum heap in use right after the latest collection, or negative before the first. */
+        double occupancyAfterGc();
+
+        /** Milliseconds spent collecting since the previous call. */
+        long takeGcMillis();
+
+        @Override
+        default void close() {
+        }
+    }
+
+    private final ConcurrentCacheStore store;
+    private final CacheProperties.Adaptive settings;
+    private final HeapPressure pressure;
+    private final Consumer<List<CacheEntry>> evictedSink;
+    private final long minimum;
+    private final long maximum;
+    private final long step;
+    private final Counter shrinks;
+    private final Counter grows;
+    private final Counter holds;
+    private long lastAdjustNanos = System.nanoTime();
+    // Read by gauges from the registry's thread
+    private volatile double lastOccupancy = -1;
+    private volatile double lastGcShare;
+
+    /**
+     * @param configured  the configured capacity, in the store's weight units
+     * @param evictedSink receives what a shrink evicted, to be persisted like any other eviction
+     */
+    public AdaptiveCapacity(ConcurrentCacheStore store, long configured, CacheProperties.Adaptive settings,
+                            HeapPressure pressure, CacheMetrics metrics, Consumer<List<CacheEntry>> evictedSink) {
+        if (settings.getMinPercent() <= 0 || settings.getMinPercent() > settings.getMaxPercent()) {
+            throw new IllegalArgumentException("cache.adaptive needs 0 < minPercent <= maxPercent");
+        }
+        this.store = store;
+        this.settings = settings;
+        this.pressure = pressure;
+        this.evictedSink = evictedSink;
+        this.minimum = Math.max(1, configured * settings.getMinPercent() / 100);
+        this.maximum = Math.max(minimum, configured * settings.getMaxPercent() / 100);
+        this.step = Math.max(1, configured * settings.getStepPercent() / 100);
+        this.shrinks = decisionCounter(metrics, Decision.SHRINK);
+        this.grows = decisionCounter(metrics, Decision.GROW);
+        this.holds = decisionCounter(metrics, Decision.HOLD);
+        metrics.gauge("cache.capacity.min", "Lowest capacity adaptive sizing may shrink to", this, a -> a.minimum);
+        metrics.gauge("cache.capacity.max", "Highest capacity adaptive sizing may grow to", this, a -> a.maximum);
+        metrics.gauge("cache.heap.occupancy", "Share of the heap in use after the latest GC", this,
+                a -> a.lastOccupancy);
+        metrics.gauge("cache.gc.time.share", "Share of time spent in GC over the latest adjustment interval", this,
+                a -> a.lastGcShare);
+        long initial = store.getMaximumWeight();
+        if (initial < minimum || initial > maximum) {
+            evictedSink.accept(store.setMaximumWeight(Math.max(minimum, Math.min(maximum, initial))));
+        }
+    }
+
+    /** Takes one resize decision and applies it. */
+    public Decision adjust() {
+        long now = System.nanoTime();
+        long elapsedMillis = Math.max(1, (now - lastAdjustNanos) / 1_000_000);
+        lastAdjustNanos = now;
+        double occupancy = pressure.occupancyAfterGc();
+        double gcShare = Math.min(1.0, pressure.takeGcMillis() / (double) elapsedMillis);
+        lastOccupancy = occupancy;
+        lastGcShare = gcShare;
+
+        long current = store.getMaximumWeight();
+        boolean gcBound = gcShare * 100 >= settings.getShrinkAboveGcPercent();
+        if ((occupancy * 100 >= settings.getShrinkAboveHeapPercent() || gcBound) && current > minimum) {
+            long target = Math.max(minimum, current - step);
+            List<CacheEntry> evicted = store.setMaximumWeight(target);
+            logger.debug("Heap at {}% after GC, {}% of time in GC: capacity {} -> {}, {} entries evicted",
+                    Math.round(occupancy * 100), Math.round(gcShare * 100), current, target, evicted.size());
+            shrinks.increment();
+            evictedSink.accept(evicted);
+            return Decision.SHRINK;
+        }
+        // Growing a cache that is not full would only leave more room to walk back through later
+        boolean full = store.getWeightedSize() > current - step;
+        if (occupancy >= 0 && occupancy * 100 < settings.getGrowBelowHeapPercent() && !gcBound && full
+                && current < maximum) {
+            long target = Math.min(maximum, current + step);
+            store.setMaximumWeight(target);
+            logger.debug("Heap at {}% after GC: capacity {} -> {}", Math.round(occupancy * 100), current, target);
+            grows.increment();
+            return Decision.GROW;
+        }
+        holds.increment();
+        return Decision.HOLD;
+    }
+
+    public long getMinimum() {
+        return minimum;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    @Override
+    public void close() {
+        pressure.close();
+    }
+
+    private static Counter decisionCounter(CacheMetrics metrics, Decision decision) {
+        return metrics.counter("cache.capacity.adjustments", "Adaptive capacity decisions",
+                "decision", decision.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Heap pressure as reported by the garbage collectors' JMX notifications: occupancy is the heap pools'
+     * usage after the latest collection of any kind, and GC time is the sum of the reported durations.
+     */
+    public static final class GcNotifications implements HeapPressure, NotificationListener {
+
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final Set<String> heapPools = new HashSet<>();
+        private final long maxHeapBytes;
+        private final AtomicLong gcMillis = new AtomicLong();
+        private volatile double occupancy = -1;
+
+        public GcNotifications() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPools.add(pool.getName());
+                }
+            }
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            this.maxHeapBytes = heap.getMax() > 0 ? heap.getMax() : Runtime.getRuntime().maxMemory();
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) collector;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            gcMillis.addAndGet(info.getGcInfo().getDuration());
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                if (heapPools.contains(pool.getKey())) {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            occupancy = used / (double) maxHeapBytes;
+        }
+
+        @Override
+        public double occupancyAfterGc() {
+            return occupancy;
+        }
+
+        @Override
+        public long takeGcMillis() {
+            return gcMillis.getAndSet(0);
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException ignored) {
+                    // Already gone
+                }
+            }
+        }
+    }
+}
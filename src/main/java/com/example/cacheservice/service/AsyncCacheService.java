@@ -0,0 +1,56 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.entity.MyEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link CacheService}.
+ * <p>
+ * Cache hits complete the returned future on the calling thread; only work that has to reach the
+ * repository is handed off to a bounded I/O executor. Failures complete the future exceptionally
+ * with a {@link com.example.cacheservice.exception.CacheException}.
+ */
+public interface AsyncCacheService {
+
+    CompletableFuture<MyEntity> getAsync(Long id);
+
+    /**
+     * Completes with the entities for the given ids; see {@link CacheService#getAll}.
+     */
+    CompletableFuture<Map<Long, MyEntity>> getAllAsync(Collection<Long> ids);
+
+    /**
+     * Completes with every entity with the name; see {@link CacheService#getByName}.
+     */
+    CompletableFuture<List<MyEntity>> getByNameAsync(String name);
+
+    /**
+     * Completes with the stored entity, which carries the id assigned by the DB for new entities.
+     */
+    CompletableFuture<MyEntity> addAsync(MyEntity entity);
+
+    /**
+     * Completes with the stored entity; see {@link CacheService#add(MyEntity, long)}.
+     */
+    CompletableFuture<MyEntity> addAsync(MyEntity entity, long ttlMillis);
+
+    CompletableFuture<List<MyEntity>> addAllAsync(Collection<MyEntity> entities);
+
+    /**
+     * Completes with the stored entity; see {@link CacheService#replace}.
+     */
+    CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion);
+
+    /**
+     * Completes with the stored entity; see {@link CacheService#replace(MyEntity, long, long)}.
+     */
+    CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion, long ttlMillis);
+
+    CompletableFuture<Void> removeAsync(MyEntity entity);
+
+    CompletableFuture<Void> removeAllByIdAsync(Collection<Long> ids);
+}
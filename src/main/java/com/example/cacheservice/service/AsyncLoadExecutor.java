@@ -0,0 +1,117 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.config.CacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded executor for the blocking repository calls behind the asynchronous API.
+ * <p>
+ * Uses a virtual thread per task when the runtime has them (Java 21+) and they are enabled,
+ * otherwise a fixed pool of platform threads. Either way at most {@code threads + queueCapacity}
+ * tasks are accepted at once; further tasks are rejected rather than queued without limit.
+ */
+public class AsyncLoadExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLoadExecutor.class);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtual;
+    private final LongAdder rejections = new LongAdder();
+
+    public AsyncLoadExecutor(CacheProperties.Async settings) {
+        int threads = Math.max(1, settings.getThreads());
+        int queueCapacity = Math.max(1, settings.getQueueCapacity());
+        ExecutorService virtualExecutor = settings.isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.permits = new Semaphore(threads + queueCapacity);
+            this.virtual = true;
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "cache-io-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+            this.virtual = false;
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException if the executor is saturated or shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        try {
+            if (permits == null) {
+                executor.execute(task);
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("Async cache executor is saturated");
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                permits.release();
+                throw ex;
+            }
+        } catch (RejectedExecutionException ex) {
+            rejections.increment();
+            throw ex;
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public long getRejectedCount() {
+        return rejections.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    // Looked up reflectively so the service still compiles and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            logger.info("Virtual threads are not available on this runtime, using a platform thread pool");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.cacheservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation for the entity cache, published under {@code cache.*} with a
+ * {@code cache} tag so several caches can share one registry.
+ * <p>
+ * Hot-path counters and timers are Micrometer's own striped implementations; values that the
+ * cache already tracks internally are exposed as function counters and gauges that are only
+ * read when the registry is scraped.
+ */
+public class CacheMetrics {
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loadSuccesses;
+    private final Counter loadNotFound;
+    private final Counter loadFailures;
+    private final Timer getLatency;
+    private final Timer loadLatency;
+
+    public CacheMetrics(MeterRegistry registry, String cacheName) {
+        this.registry = registry;
+        this.tags = Tags.of("cache", cacheName);
+        this.hits = Counter.builder("cache.gets").tags(tags).tag("result", "hit")
+                .description("Lookups answered from the cache").register(registry);
+        this.misses = Counter.builder("cache.gets").tags(tags).tag("result", "miss")
+                .description("Lookups that were not in the cache").register(registry);
+        this.loadSuccesses = loadCounter("success");
+        this.loadNotFound = loadCounter("not_found");
+        this.loadFailures = loadCounter("failure");
+        this.getLatency = Timer.builder("cache.get.latency").tags(tags)
+                .description("Latency of get calls, hits and misses alike")
+                .publishPercentileHistogram().register(registry);
+        this.loadLatency = Timer.builder("cache.load.latency").tags(tags)
+                .description("Latency of loads from the backing store")
+                .publishPercentileHistogram().register(registry);
+    }
+
+    public void recordHits(long count) {
+        hits.increment(count);
+    }
+
+    public void recordMisses(long count) {
+        misses.increment(count);
+    }
+
+    public void recordLoadSuccesses(long count) {
+        loadSuccesses.increment(count);
+    }
+
+    public void recordLoadNotFound(long count) {
+        loadNotFound.increment(count);
+    }
+
+    public void recordLoadFailure() {
+        loadFailures.increment();
+    }
+
+    public void recordGet(long startNanos) {
+        getLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLoad(long startNanos) {
+        loadLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getHitCount() {
+        return (long) hits.count();
+    }
+
+    public long getMissCount() {
+        return (long) misses.count();
+    }
+
+    public long getLoadFailureCount() {
+        return (long) loadFailures.count();
+    }
+
+    /** Registers a counter for events the caller counts itself, under this cache's tags. */
+    public Counter counter(String name, String description, String tagKey, String tagValue) {
+        return Counter.builder(name).tags(tags).tag(tagKey, tagValue).description(description).register(registry);
+    }
+
+    /** Exposes a monotonically increasing value the cache already tracks. */
+    public <T> void functionCounter(String name, String description, T source, ToDoubleFunction<T> value) {
+        FunctionCounter.builder(name, source, value).tags(tags).description(description).register(registry);
+    }
+
+    /** Exposes a current value the cache already tracks. */
+    public <T> void gauge(String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value).tags(tags).description(description).register(registry);
+    }
+
+    private Counter loadCounter(String result) {
+        return Counter.builder("cache.loads").tags(tags).tag("result", result)
+                .description("Loads from the backing store").register(registry);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Warms the cache from the repository on startup.
+ * <p>
+ * Entities are read a page at a time and handed to the sink as soon as they arrive, so no result
+ * set is ever held in full. Id ranges are split between workers and walked with keyset pagination
+ * ({@code id > last seen}), which stays cheap however deep into the table a worker gets. A shared
+ * rate limit caps the rows read per second so warming a large cache cannot swamp the DB.
+ */
+public class CachePreloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachePreloader.class);
+
+    private final MyEntityRepository repository;
+    private final CacheProperties.Preload settings;
+    private final int pageSize;
+    private final int parallelism;
+    private final RateLimiter rateLimiter;
+
+    public CachePreloader(MyEntityRepository repository, CacheProperties.Preload settings) {
+        this.repository = repository;
+        this.settings = settings;
+        this.pageSize = Math.max(1, settings.getPageSize());
+        this.parallelism = Math.max(1, settings.getParallelism());
+        this.rateLimiter = new RateLimiter(settings.getMaxRowsPerSecond());
+    }
+
+    /**
+     * Loads up to {@code budget} entities into {@code sink}; the sink may be called concurrently.
+     *
+     * @return number of entities handed to the sink
+     */
+    public int preload(int budget, Consumer<List<MyEntity>> sink) throws IOException, InterruptedException {
+        return preload(budget, sink, () -> false);
+    }
+
+    /**
+     * Like {@link #preload(int, Consumer)}, but stops handing out further pages as soon as {@code full}
+     * reports true after a page; for caches whose capacity is not a plain entry count.
+     */
+    public int preload(int budget, Consumer<List<MyEntity>> sink, BooleanSupplier full)
+            throws IOException, InterruptedException {
+        if (budget <= 0) {
+            return 0;
+        }
+        AtomicInteger remaining = new AtomicInteger(budget);
+        AtomicInteger loaded = new AtomicInteger();
+        Consumer<List<MyEntity>> counting = page -> {
+            loaded.addAndGet(page.size());
+            sink.accept(page);
+            if (full.getAsBoolean()) {
+                // Far enough below zero that workers giving back unused claims cannot revive it
+                remaining.set(Integer.MIN_VALUE / 2);
+            }
+        };
+
+        List<Runnable> tasks;
+        switch (settings.getSource()) {
+            case HOT_KEYS:
+                tasks = hotKeyTasks(remaining, counting);
+                break;
+            case ID_RANGE:
+                tasks = rangeTasks(settings.getFromId(), settings.getToId(), remaining, counting);
+                break;
+            default:
+                Optional<MyEntity> first = repository.findFirstByOrderByIdAsc();
+                Optional<MyEntity> last = repository.findFirstByOrderByIdDesc();
+                if (first.isEmpty() || last.isEmpty()) {
+                    return 0;
+                }
+                tasks = rangeTasks(first.get().getId(), last.get().getId(), remaining, counting);
+        }
+        run(tasks);
+        return loaded.get();
+    }
+
+    private List<Runnable> rangeTasks(long from, long to, AtomicInteger remaining, Consumer<List<MyEntity>> sink) {
+        if (from > to) {
+            return List.of();
+        }
+        // Split into contiguous sub-ranges, one per worker; the last one takes the rounding
+        long span = to - from;
+        long step = Math.max(1, span / parallelism);
+        List<Runnable> tasks = new ArrayList<>(parallelism);
+        long start = from;
+        for (int i = 0; i < parallelism && start <= to; i++) {
+            long end = i == parallelism - 1 || to - start < step ? to : start + step - 1;
+            long rangeStart = start;
+            tasks.add(() -> loadRange(rangeStart, end, remaining, sink));
+            if (end == to) {
+                break;
+            }
+            start = end + 1;
+        }
+        return tasks;
+    }
+
+    private void loadRange(long from, long to, AtomicInteger remaining, Consumer<List<MyEntity>> sink) {
+        long next = from;
+        while (next <= to) {
+            int limit = claim(remaining);
+            if (limit == 0) {
+                return;
+            }
+            rateLimiter.acquire(limit);
+            List<MyEntity> page = repository.findByIdBetweenOrderByIdAsc(next, to, PageRequest.of(0, limit));
+            // Give back whatever the page did not use
+            remaining.addAndGet(limit - page.size());
+            if (page.isEmpty()) {
+                return;
+            }
+            sink.accept(page);
+            long lastId = page.get(page.size() - 1).getId();
+            if (page.size() < limit || lastId == Long.MAX_VALUE) {
+                return;
+            }
+            next = lastId + 1;
+        }
+    }
+
+    private List<Runnable> hotKeyTasks(AtomicInteger remaining, Consumer<List<MyEntity>> sink) throws IOException {
+        if (settings.getHotKeysFile() == null) {
+            throw new IOException("cache.preload.hotKeysFile is not set");
+        }
+        List<Long> ids;
+        try (Stream<String> lines = Files.lines(Paths.get(settings.getHotKeysFile()))) {
+            ids = lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(Long::valueOf)
+                    .distinct()
+                    .limit(remaining.get())
+                    .collect(Collectors.toList());
+        } catch (NumberFormatException ex) {
+            throw new IOException("Hot key file contains a line that is not an id: " + ex.getMessage(), ex);
+        }
+
+        // Hand out pages round-robin, so the hottest ids are fetched first by every worker
+        List<List<List<Long>>> perWorker = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            perWorker.add(new ArrayList<>());
+        }
+        for (int from = 0, page = 0; from < ids.size(); from += pageSize, page++) {
+            perWorker.get(page % parallelism).add(ids.subList(from, Math.min(ids.size(), from + pageSize)));
+        }
+        List<Runnable> tasks = new ArrayList<>(parallelism);
+        for (List<List<Long>> pages : perWorker) {
+            if (!pages.isEmpty()) {
+                tasks.add(() -> {
+                    for (List<Long> page : pages) {
+                        // The id list was already cut to the budget; this only trips once the sink is full
+                        if (remaining.get() <= 0) {
+                            return;
+                        }
+                        rateLimiter.acquire(page.size());
+                        List<MyEntity> found = repository.findAllById(page);
+                        if (!found.isEmpty()) {
+                            sink.accept(found);
+                        }
+                    }
+                });
+            }
+        }
+        return tasks;
+    }
+
+    private void run(List<Runnable> tasks) throws InterruptedException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "cache-preload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            tasks.forEach(task -> futures.add(workers.submit(task)));
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    // One failed worker should not throw away what the others loaded
+                    logger.warn("Cache preload worker failed: {}", ex.getCause().getMessage());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private int claim(AtomicInteger remaining) {
+        while (true) {
+            int current = remaining.get();
+            if (current <= 0) {
+                return 0;
+            }
+            int limit = Math.min(pageSize, current);
+            if (remaining.compareAndSet(current, current - limit)) {
+                return limit;
+            }
+        }
+    }
+
+    /**
+     * Spaces out reservations so that no more than {@code permitsPerSecond} permits are handed
+     * out per second on average; callers sleep outside any lock until their slot comes up.
+     */
+    static final class RateLimiter {
+
+        private final long nanosPerPermit;
+        private final AtomicLong nextFree = new AtomicLong(System.nanoTime());
+
+        RateLimiter(long permitsPerSecond) {
+            this.nanosPerPermit = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+        }
+
+        void acquire(int permits) {
+            if (nanosPerPermit == 0) {
+                return;
+            }
+            long cost = nanosPerPermit * permits;
+            long now = System.nanoTime();
+            long start = nextFree.getAndUpdate(next -> Math.max(next, now) + cost);
+            long wait = Math.max(start, now) - now;
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.cache.Expiry;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.exception.ResourceNotFoundException;
+import com.example.cacheservice.repository.MyEntityRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The default cache plus the named regions configured under {@code cache.regions.*}.
+ * <p>
+ * Each region is a separate {@link CacheServiceImpl} over the same table, with its own store, eviction
+ * policy, expiry and I/O executor, so traffic sent to one region can never evict entries of another.
+ * Since every region can hold a copy of any entity, a write through one region invalidates the
+ * written ids in all the others. With write-behind on, all regions share the default cache's queue:
+ * that invalidation happens before the write is flushed, and a region reloading the id in between
+ * must find the queued value rather than the old row, or evict that old row back over it later.
+ * Regions cannot be combined with cluster mode, whose invalidations only reach the default cache.
+ */
+@Component
+public class CacheRegions {
+
+    public static final String DEFAULT = "default";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRegions.class);
+
+    private final CacheService defaultService;
+    private final AsyncCacheService defaultAsyncService;
+    private final Map<String, CacheServiceImpl> regions = new LinkedHashMap<>();
+
+    public CacheRegions(CacheService cacheService, AsyncCacheService asyncCacheService, CacheServiceImpl defaultCache,
+                        MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry,
+                        ObjectProvider<Expiry> customExpiry) {
+        this.defaultService = cacheService;
+        this.defaultAsyncService = asyncCacheService;
+        if (properties.getRegions().isEmpty()) {
+            return;
+        }
+        if (properties.getCluster().isEnabled()) {
+            throw new IllegalStateException("cache.regions cannot be combined with cache.cluster.enabled");
+        }
+        if (properties.getRegions().containsKey(DEFAULT)) {
+            throw new IllegalStateException("Region name '" + DEFAULT + "' is reserved for the top-level cache settings");
+        }
+        Map<String, CacheServiceImpl> all = new LinkedHashMap<>();
+        all.put(DEFAULT, defaultCache);
+        properties.getRegions().forEach((name, region) -> {
+            CacheServiceImpl cache = new CacheServiceImpl(repository, region.resolve(properties), meterRegistry, name,
+                    customExpiry.getIfAvailable(), defaultCache.writeBehind());
+            regions.put(name, cache);
+            all.put(name, cache);
+            logger.info("Cache region {} created", name);
+        });
+        all.forEach((name, cache) -> cache.addWriteListener(new InvalidateOthers(name, all)));
+    }
+
+    /** The named region's service; {@code null} or {@value #DEFAULT} means the default cache. */
+    public CacheService service(String region) {
+        return isDefault(region) ? defaultService : region(region);
+    }
+
+    /** Asynchronous counterpart of {@link #service}. */
+    public AsyncCacheService asyncService(String region) {
+        return isDefault(region) ? defaultAsyncService : region(region);
+    }
+
+    /** Names of the configured regions, not counting the default cache. */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(regions.keySet());
+    }
+
+    @PreDestroy
+    public void onDestroy() {
+        regions.values().forEach(CacheServiceImpl::onDestroy);
+    }
+
+    private CacheServiceImpl region(String name) {
+        CacheServiceImpl region = regions.get(name);
+        if (region == null) {
+            throw new ResourceNotFoundException("No cache region named " + name);
+        }
+        return region;
+    }
+
+    private static boolean isDefault(String region) {
+        return region == null || DEFAULT.equals(region);
+    }
+
+    /** Drops ids written through one region from every other region. */
+    private static final class InvalidateOthers implements WriteListener {
+
+        private final String self;
+        private final Map<String, CacheServiceImpl> all;
+
+        InvalidateOthers(String self, Map<String, CacheServiceImpl> all) {
+            this.self = self;
+            this.all = all;
+        }
+
+        @Override
+        public void written(Collection<Long> ids) {
+            all.forEach((name, cache) -> {
+                if (!name.equals(self)) {
+                    cache.invalidateAll(ids);
+                }
+            });
+        }
+
+        @Override
+        public void allRemoved() {
+            all.forEach((name, cache) -> {
+                if (!name.equals(self)) {
+                    cache.clear();
+                }
+            });
+        }
+    }
+}
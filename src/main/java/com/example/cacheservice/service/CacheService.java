@@ -4,15 +4,82 @@ package com.example.cacheservice.service;
 import com.example.cacheservice.entity.MyEntity;
 import com.example.cacheservice.exception.CacheException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 public interface CacheService {
 
     void add(MyEntity e1) throws CacheException;
 
+    /**
+     * Like {@link #add(MyEntity)}, but the cached copy lives {@code ttlMillis} instead of
+     * {@code cache.expirationMillis}; whether reads extend that still depends on {@code cache.expiryMode}.
+     */
+    void add(MyEntity entity, long ttlMillis) throws CacheException;
+
+    /**
+     * Compare-and-set: saves the entity's new state only if the stored entity is still at
+     * {@code expectedVersion}, without serializing against other writers.
+     *
+     * @return the stored entity, carrying its new version
+     * @throws com.example.cacheservice.exception.VersionConflictException if the entity has been
+     *                                                                     changed or removed since
+     */
+    MyEntity replace(MyEntity entity, long expectedVersion) throws CacheException;
+
+    /**
+     * {@link #replace(MyEntity, long)} with a TTL for the cached copy, as for {@link #add(MyEntity, long)}.
+     */
+    MyEntity replace(MyEntity entity, long expectedVersion, long ttlMillis) throws CacheException;
+
     void remove(MyEntity e1) throws CacheException;
 
     void removeAll();
 
     MyEntity get(MyEntity e1) throws CacheException;
 
+    /**
+     * Returns every entity with the given name, in no particular order; empty if there is none. Served
+     * from the cache when all of them are cached, otherwise with one DB query that caches them.
+     */
+    List<MyEntity> getByName(String name) throws CacheException;
+
     void clear();
+
+    /**
+     * Returns the entities for the given ids, serving hits from memory and loading all misses
+     * with a single repository query. Ids that exist nowhere are left out of the result.
+     */
+    Map<Long, MyEntity> getAll(Collection<Long> ids) throws CacheException;
+
+    /**
+     * Saves and caches all the entities in one batch, returning them with their ids assigned.
+     */
+    List<MyEntity> addAll(Collection<MyEntity> entities) throws CacheException;
+
+    /**
+     * Removes the entities with the given ids from the cache and the DB in one batch.
+     */
+    void removeAllById(Collection<Long> ids) throws CacheException;
+
+    /**
+     * Drops the given ids from the cache only; the DB is untouched.
+     */
+    void invalidateAll(Collection<Long> ids);
+
+    CacheStats stats();
+
+    /**
+     * Passes the entities held in this node's heap cache with ids in [fromId, toId] to {@code action},
+     * in no particular order. Weakly consistent, and records no access.
+     */
+    void forEachCached(long fromId, long toId, Consumer<MyEntity> action);
+
+    /**
+     * Passes every entity in the DB with an id in [fromId, toId] to {@code action}, by id, streaming
+     * the rows through a cursor. Writes still queued for write-behind are not in the DB yet.
+     */
+    void forEachStored(long fromId, long toId, Consumer<MyEntity> action) throws CacheException;
 }
@@ -1,82 +1,261 @@
 package com.example.cacheservice.service;
 
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.CacheSnapshot;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.cache.Expiry;
+import com.example.cacheservice.cache.NameIndex;
+import com.example.cacheservice.cache.NegativeCache;
+import com.example.cacheservice.cache.OffHeapStore;
+import com.example.cacheservice.cache.RemovalListener;
+import com.example.cacheservice.cache.Weigher;
+import com.example.cacheservice.config.CacheProperties;
 import com.example.cacheservice.entity.MyEntity;
 import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.exception.VersionConflictException;
 import com.example.cacheservice.repository.MyEntityRepository;
-import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
-import java.util.Iterator;
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
-public class CacheServiceImpl implements CacheService {
+public class CacheServiceImpl implements CacheService, AsyncCacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheServiceImpl.class);
+    // Entries copied per index lock acquisition when scanning the cache
+    private static final int SCAN_CHUNK_SIZE = 256;
+    // Passed internally in place of a TTL when the store's expiry decides the lifetime
+    private static final long DEFAULT_TTL = 0;
 
-    private final int maxSize;
-    private final long expirationMillis;
     private final MyEntityRepository repository;
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-    private final Map<Long, CacheEntry> cacheMap;
+    private final LastWriteWinsSaver saver;
+    private final ConcurrentCacheStore store;
+    /** Null when disabled or in cluster mode, where writes on other members would not reach it. */
+    private final NameIndex nameIndex;
+    /** Whether capacity is a byte budget rather than an entry count. */
+    private final boolean weighted;
+    private final OffHeapStore offHeap;
+    private final NegativeCache negativeCache;
+    private final WriteBehindWriter writeBehind;
+    /** False when the write-behind queue is shared with, and closed by, another cache. */
+    private final boolean ownsWriteBehind;
+    private final RefreshAheadExecutor refresher;
+    /** Null unless {@code cache.adaptive.enabled}. */
+    private final AdaptiveCapacity adaptiveCapacity;
+    private final long refreshAfterWriteMillis;
+    private final SingleFlightLoader<Long, MyEntity> loader = new SingleFlightLoader<>();
+    private final AsyncLoadExecutor ioExecutor;
+    private final Path snapshotFile;
+    private final CacheMetrics metrics;
     private final ScheduledExecutorService scheduler;
+    private final List<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    public CacheServiceImpl(MyEntityRepository repository, int maxSize, long expirationMillis) {
+        this(repository, CacheProperties.of(maxSize, expirationMillis), new SimpleMeterRegistry());
+    }
+
+    public CacheServiceImpl(MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry) {
+        this(repository, properties, meterRegistry, "entity");
+    }
 
-    public CacheServiceImpl(
-            MyEntityRepository repository,
-            @Value("${cache.maxSize:5}") int maxSize,
-            @Value("${cache.expirationMillis:60000}") long expirationMillis) {
+    @Autowired
+    public CacheServiceImpl(MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry,
+                            ObjectProvider<Expiry> customExpiry) {
+        this(repository, properties, meterRegistry, "entity", customExpiry.getIfAvailable());
+    }
+
+    public CacheServiceImpl(MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry,
+                            String name) {
+        this(repository, properties, meterRegistry, name, null);
+    }
+
+    /**
+     * @param name         tags this cache's meters, so several caches can share one registry
+     * @param customExpiry decides lifetimes when {@code cache.expiryMode} is {@code CUSTOM}; may be null otherwise
+     */
+    public CacheServiceImpl(MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry,
+                            String name, Expiry customExpiry) {
+        this(repository, properties, meterRegistry, name, customExpiry, null);
+    }
 
+    /**
+     * @param sharedWriteBehind write-behind queue of another cache over the same table, used instead of one of
+     *                          its own so that neither reads or writes back rows the other has yet to flush;
+     *                          null to follow {@code cache.writeBehind.enabled}
+     */
+    CacheServiceImpl(MyEntityRepository repository, CacheProperties properties, MeterRegistry meterRegistry,
+                     String name, Expiry customExpiry, WriteBehindWriter sharedWriteBehind) {
         this.repository = repository;
-        this.maxSize = maxSize;
-        this.expirationMillis = expirationMillis;
-
-        this.cacheMap = new LinkedHashMap<Long, CacheEntry>(maxSize, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
-                if (size() > maxSize) {
-                    CacheEntry entryToEvict = eldest.getValue();
-                    MyEntity toEvict = entryToEvict.getEntity();
-                    logger.info("Evicting entity with id {} to database due to size limit.", toEvict.getId());
-                    try {
-                        repository.save(toEvict);
-                    } catch (Exception e) {
-                        logger.error("Failed to save evicted entity with id {} to DB: {}", toEvict.getId(), e.getMessage());
-                    }
-                    return true;
-                }
-                return false;
-            }
-        };
+        this.saver = new LastWriteWinsSaver(repository);
+        long expirationMillis = properties.getExpirationMillis();
+        this.nameIndex = properties.getNameIndex().isEnabled() && !properties.getCluster().isEnabled()
+                ? new NameIndex()
+                : null;
+        this.store = createStore(properties, nameIndex == null ? RemovalListener.none() : nameIndex, customExpiry);
+        this.weighted = properties.getMaxWeightBytes() > 0;
+        CacheProperties.OffHeap offHeapSettings = properties.getOffHeap();
+        this.offHeap = offHeapSettings.isEnabled()
+                ? new OffHeapStore(offHeapSettings.getMaxBytes(), offHeapSettings.getSlabBytes(),
+                        offHeapSettings.getMappedFile() == null ? null : Paths.get(offHeapSettings.getMappedFile()))
+                : null;
+        CacheProperties.Negative negativeSettings = properties.getNegative();
+        this.negativeCache = negativeSettings.isEnabled()
+                ? new NegativeCache(negativeSettings.getMaxSize(), negativeSettings.getTtlMillis())
+                : null;
+        this.ownsWriteBehind = sharedWriteBehind == null;
+        if (sharedWriteBehind != null) {
+            this.writeBehind = sharedWriteBehind;
+        } else {
+            this.writeBehind = properties.getWriteBehind().isEnabled()
+                    ? new WriteBehindWriter(repository, properties.getWriteBehind())
+                    : null;
+        }
+        CacheProperties.Refresh refreshSettings = properties.getRefresh();
+        this.refreshAfterWriteMillis = refreshSettings.getAfterWriteMillis();
+        this.refresher = refreshAfterWriteMillis > 0
+                ? new RefreshAheadExecutor(refreshSettings.getThreads(), refreshSettings.getQueueCapacity())
+                : null;
+        this.ioExecutor = new AsyncLoadExecutor(properties.getAsync());
+        this.metrics = new CacheMetrics(meterRegistry, name);
+        registerMetrics();
+        CacheProperties.Adaptive adaptiveSettings = properties.getAdaptive();
+        this.adaptiveCapacity = adaptiveSettings.isEnabled()
+                ? new AdaptiveCapacity(store, configuredCapacity(properties), adaptiveSettings,
+                        new AdaptiveCapacity.GcNotifications(), metrics, this::persistEvicted)
+                : null;
+
+        // Load before the bean is ready, so the service only reports up once it is warm
+        CacheProperties.Snapshot snapshotSettings = properties.getSnapshot();
+        this.snapshotFile = snapshotSettings.isEnabled() ? Paths.get(snapshotSettings.getFile()) : null;
+        if (snapshotFile != null) {
+            restoreSnapshot(snapshotSettings.getLoadThreads());
+        }
+        if (properties.getPreload().isEnabled()) {
+            preload(new CachePreloader(repository, properties.getPreload()));
+        }
 
-        // Schedule periodic cleanup of expired entries
+        // Advance the expiry timer wheel in small steps; each step only visits entries that are due
+        long tickMillis = Math.max(1, Math.min(properties.getExpiryTickMillis(), expirationMillis));
         scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(this::removeExpiredEntries, expirationMillis, expirationMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::removeExpiredEntries, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        if (snapshotFile != null && snapshotSettings.getIntervalMillis() > 0) {
+            scheduler.scheduleWithFixedDelay(this::saveSnapshot, snapshotSettings.getIntervalMillis(),
+                    snapshotSettings.getIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (adaptiveCapacity != null) {
+            scheduler.scheduleWithFixedDelay(this::adjustCapacity, adaptiveSettings.getIntervalMillis(),
+                    adaptiveSettings.getIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public void add(MyEntity e1) throws CacheException {
+        put(e1, DEFAULT_TTL);
+    }
+
+    @Override
+    public void add(MyEntity entity, long ttlMillis) throws CacheException {
+        put(entity, requirePositiveTtl(ttlMillis));
+    }
+
+    private MyEntity put(MyEntity e1, long ttlMillis) throws CacheException {
         if (e1 == null) {
             throw new CacheException("Cannot add a null entity to the cache.");
         }
 
-        rwLock.writeLock().lock();
+        List<CacheEntry> evicted;
+        MyEntity entityToStore;
         try {
-            MyEntity entityToStore = repository.save(e1);
-            cacheMap.put(entityToStore.getId(), new CacheEntry(entityToStore));
-            logger.info("Entity with id {} added/updated in cache.", entityToStore.getId());
+            if (canWriteBehind(e1)) {
+                writeBehind.enqueue(e1);
+                entityToStore = unversioned(e1);
+            } else {
+                // A new row gets its id from the DB, so this write cannot be deferred
+                entityToStore = saver.save(e1);
+            }
+            evicted = cache(entityToStore, ttlMillis);
+            if (nameIndex != null) {
+                nameIndex.added(entityToStore);
+            }
+            if (offHeap != null) {
+                offHeap.remove(entityToStore.getId());
+            }
+            if (negativeCache != null) {
+                negativeCache.invalidate(entityToStore.getId());
+            }
+            logger.debug("Entity with id {} added/updated in cache.", entityToStore.getId());
         } catch (Exception ex) {
             logger.error("Error adding entity to cache: {}", ex.getMessage());
             throw new CacheException("Error adding entity to cache.", ex);
-        } finally {
-            rwLock.writeLock().unlock();
         }
+        notifyWritten(List.of(entityToStore.getId()));
+        persistEvicted(evicted);
+        return entityToStore;
+    }
+
+    @Override
+    public MyEntity replace(MyEntity entity, long expectedVersion) throws CacheException {
+        return compareAndReplace(entity, expectedVersion, DEFAULT_TTL);
+    }
+
+    @Override
+    public MyEntity replace(MyEntity entity, long expectedVersion, long ttlMillis) throws CacheException {
+        return compareAndReplace(entity, expectedVersion, requirePositiveTtl(ttlMillis));
+    }
+
+    private MyEntity compareAndReplace(MyEntity entity, long expectedVersion, long ttlMillis) throws CacheException {
+        if (entity == null || entity.getId() == null) {
+            throw new CacheException("Cannot replace an entity without a valid ID.");
+        }
+        Long id = entity.getId();
+        // A queued write has no version yet, so whatever version the caller holds is already outdated
+        boolean updated = (writeBehind == null || writeBehind.getPending(id) == null)
+                && compareAndSet(id, entity.getName(), expectedVersion);
+        if (!updated) {
+            // Whatever is cached may be what the caller's version was checked against; reload it next time
+            store.remove(id);
+            throw new VersionConflictException("Entity with id " + id + " is no longer at version " + expectedVersion);
+        }
+
+        MyEntity stored = new MyEntity(id, entity.getName(), expectedVersion + 1);
+        List<CacheEntry> evicted = cache(stored, ttlMillis);
+        if (nameIndex != null) {
+            nameIndex.added(stored);
+        }
+        if (offHeap != null) {
+            offHeap.remove(id);
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidate(id);
+        }
+        logger.debug("Entity with id {} replaced at version {}.", id, stored.getVersion());
+        notifyWritten(List.of(id));
+        persistEvicted(evicted);
+        return stored;
     }
 
     @Override
@@ -85,34 +264,45 @@ public class CacheServiceImpl implements CacheService {
             throw new CacheException("Cannot remove an entity without a valid ID.");
         }
 
-        rwLock.writeLock().lock();
         try {
-            cacheMap.remove(e1.getId());
+            store.remove(e1.getId());
+            if (offHeap != null) {
+                offHeap.remove(e1.getId());
+            }
+            if (writeBehind != null) {
+                writeBehind.cancel(e1.getId());
+            }
             if (repository.existsById(e1.getId())) {
                 repository.deleteById(e1.getId());
-                logger.info("Entity with id {} removed from cache and DB", e1.getId());
+                logger.debug("Entity with id {} removed from cache and DB", e1.getId());
             } else {
                 logger.warn("Attempted to remove entity with id {} that does not exist in DB", e1.getId());
             }
+            notifyWritten(List.of(e1.getId()));
         } catch (Exception ex) {
             logger.error("Error removing entity with id {}: {}", e1.getId(), ex.getMessage());
             throw new CacheException("Error removing entity from cache.", ex);
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
     @Override
     public void removeAll() {
-        rwLock.writeLock().lock();
         try {
-            cacheMap.clear();
+            store.clear();
+            if (nameIndex != null) {
+                nameIndex.clear();
+            }
+            if (offHeap != null) {
+                offHeap.clear();
+            }
+            if (writeBehind != null) {
+                writeBehind.cancelAll();
+            }
             repository.deleteAll();
+            writeListeners.forEach(WriteListener::allRemoved);
             logger.info("All entities removed from cache and DB");
         } catch (Exception ex) {
             logger.error("Error removing all entities: {}", ex.getMessage());
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
@@ -122,96 +312,811 @@ public class CacheServiceImpl implements CacheService {
             throw new CacheException("Cannot get an entity without a valid ID.");
         }
 
-        rwLock.writeLock().lock();
+        Long id = e1.getId();
+        long start = System.nanoTime();
         try {
-            CacheEntry entry = cacheMap.get(e1.getId());
-            if (entry != null && !entry.isExpired(expirationMillis)) {
-                entry.updateAccessTime();
-                logger.info("Entity with id {} found in cache", e1.getId());
-                return entry.getEntity();
-            } else {
-                if (entry != null && entry.isExpired(expirationMillis)) {
-                    cacheMap.remove(e1.getId());
-                }
-
-                Optional<MyEntity> fromDb = repository.findById(e1.getId());
-                if (fromDb.isPresent()) {
-                    MyEntity entity = fromDb.get();
-                    cacheMap.put(entity.getId(), new CacheEntry(entity));
-                    logger.info("Entity with id {} fetched from DB and added to cache", e1.getId());
-                    return entity;
-                } else {
-                    throw new CacheException("Entity with id " + e1.getId() + " not found in cache or DB.");
-                }
+            CacheEntry cached = store.getEntryIfPresent(id);
+            if (cached != null) {
+                metrics.recordHits(1);
+                logger.debug("Entity with id {} found in cache", id);
+                refreshIfStale(cached);
+                return cached.getEntity();
+            }
+            metrics.recordMisses(1);
+            if (negativeCache != null && negativeCache.isKnownMissing(id)) {
+                throw new CacheException("Entity with id " + id + " not found in cache or DB.");
             }
+            // Concurrent misses for the same id share one load
+            return loader.load(id, () -> load(id));
         } catch (Exception ex) {
-            logger.error("Error getting entity with id {}: {}", e1.getId(), ex.getMessage());
+            logger.error("Error getting entity with id {}: {}", id, ex.getMessage());
             throw new CacheException("Error getting entity from cache.", ex);
         } finally {
-            rwLock.writeLock().unlock();
+            metrics.recordGet(start);
         }
     }
 
     @Override
     public void clear() {
-        rwLock.writeLock().lock();
         try {
-            cacheMap.clear();
+            store.clear();
+            if (nameIndex != null) {
+                nameIndex.clear();
+            }
+            if (offHeap != null) {
+                offHeap.clear();
+            }
+            if (negativeCache != null) {
+                negativeCache.clear();
+            }
             logger.info("Cache cleared. DB untouched.");
         } catch (Exception ex) {
             logger.error("Error clearing cache: {}", ex.getMessage());
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
-    private void removeExpiredEntries() {
-        rwLock.writeLock().lock();
-        try {
-            long now = System.currentTimeMillis();
-            Iterator<Map.Entry<Long, CacheEntry>> iterator = cacheMap.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Long, CacheEntry> entry = iterator.next();
-                if (entry.getValue().isExpired(expirationMillis)) {
-                    iterator.remove();
-                    logger.info("Removed expired entity with id {} from cache", entry.getKey());
+    @Override
+    public List<MyEntity> getByName(String name) throws CacheException {
+        if (name == null) {
+            throw new CacheException("Cannot get entities without a name.");
+        }
+        List<MyEntity> cached = getCachedByName(name);
+        return cached != null ? cached : loadByName(name);
+    }
+
+    @Override
+    public Map<Long, MyEntity> getAll(Collection<Long> ids) throws CacheException {
+        Set<Long> distinct = validIds(ids, "Cannot get entities without valid IDs.");
+        Map<Long, MyEntity> found = store.getAllPresent(distinct);
+        return loadMissing(distinct, found, missesOf(distinct, found));
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> getAsync(Long id) {
+        if (id == null) {
+            return CompletableFuture.failedFuture(new CacheException("Cannot get an entity without a valid ID."));
+        }
+
+        long start = System.nanoTime();
+        CacheEntry cached = store.getEntryIfPresent(id);
+        if (cached != null) {
+            // Hits complete on the calling thread
+            metrics.recordHits(1);
+            refreshIfStale(cached);
+            metrics.recordGet(start);
+            return CompletableFuture.completedFuture(cached.getEntity());
+        }
+        metrics.recordMisses(1);
+        CompletableFuture<MyEntity> loaded = negativeCache != null && negativeCache.isKnownMissing(id)
+                ? CompletableFuture.failedFuture(new CacheException("Entity with id " + id + " not found in cache or DB."))
+                : loader.loadAsync(id, () -> load(id), ioExecutor);
+        return loaded.handle((entity, ex) -> {
+            metrics.recordGet(start);
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                logger.error("Error getting entity with id {}: {}", id, cause.getMessage());
+                throw new CompletionException(new CacheException("Error getting entity from cache.", cause));
+            }
+            return entity;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, MyEntity>> getAllAsync(Collection<Long> ids) {
+        Set<Long> distinct;
+        try {
+            distinct = validIds(ids, "Cannot get entities without valid IDs.");
+        } catch (CacheException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        Map<Long, MyEntity> found = store.getAllPresent(distinct);
+        List<Long> misses = missesOf(distinct, found);
+        if (misses.isEmpty()) {
+            return CompletableFuture.completedFuture(inRequestOrder(distinct, found));
+        }
+        return callAsync(() -> loadMissing(distinct, found, misses));
+    }
+
+    @Override
+    public CompletableFuture<List<MyEntity>> getByNameAsync(String name) {
+        if (name == null) {
+            return CompletableFuture.failedFuture(new CacheException("Cannot get entities without a name."));
+        }
+        List<MyEntity> cached = getCachedByName(name);
+        return cached != null ? CompletableFuture.completedFuture(cached) : callAsync(() -> loadByName(name));
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion) {
+        return callAsync(() -> replace(entity, expectedVersion));
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion, long ttlMillis) {
+        return callAsync(() -> replace(entity, expectedVersion, ttlMillis));
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> addAsync(MyEntity entity) {
+        return putAsync(entity, DEFAULT_TTL);
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> addAsync(MyEntity entity, long ttlMillis) {
+        try {
+            return putAsync(entity, requirePositiveTtl(ttlMillis));
+        } catch (CacheException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private CompletableFuture<MyEntity> putAsync(MyEntity entity, long ttlMillis) {
+        if (writeBehind != null && entity != null && entity.getId() != null && isKnownToExist(entity.getId())) {
+            // Only queues the write, so there is nothing to hand off
+            try {
+                return CompletableFuture.completedFuture(put(entity, ttlMillis));
+            } catch (CacheException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        return callAsync(() -> put(entity, ttlMillis));
+    }
+
+    @Override
+    public CompletableFuture<List<MyEntity>> addAllAsync(Collection<MyEntity> entities) {
+        return callAsync(() -> addAll(entities));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(MyEntity entity) {
+        return callAsync(() -> {
+            remove(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllByIdAsync(Collection<Long> ids) {
+        return callAsync(() -> {
+            removeAllById(ids);
+            return null;
+        });
+    }
+
+    private List<Long> missesOf(Set<Long> distinct, Map<Long, MyEntity> found) {
+        List<Long> misses = new ArrayList<>();
+        for (Long id : distinct) {
+            if (!found.containsKey(id) && (negativeCache == null || !negativeCache.isKnownMissing(id))) {
+                misses.add(id);
+            }
+        }
+        metrics.recordHits(found.size());
+        metrics.recordMisses(distinct.size() - found.size());
+        return misses;
+    }
+
+    /** The entities with the name if the index has them all, or {@code null} to query the DB. */
+    private List<MyEntity> getCachedByName(String name) {
+        long[] ids = nameIndex == null ? null : nameIndex.get(name);
+        if (ids == null) {
+            return null;
+        }
+        List<MyEntity> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            MyEntity entity = store.getIfPresent(id);
+            if (entity == null) {
+                // Evicted or expired since the index was read; its removal has dropped the name as well
+                return null;
+            }
+            found.add(entity);
+        }
+        return found;
+    }
+
+    /** One query for every entity with the name, which fills both the cache and the name index. */
+    private List<MyEntity> loadByName(String name) throws CacheException {
+        try {
+            long epoch = nameIndex == null ? 0 : nameIndex.epoch(name);
+            if (writeBehind != null) {
+                // Queued writes are cached but not in the DB yet, and the query has to see them
+                writeBehind.flush();
+            }
+            List<MyEntity> loaded = repository.findByName(name);
+            persistEvicted(store.putAllIfAbsent(loaded));
+            if (nameIndex != null) {
+                nameIndex.fill(name, loaded.stream().mapToLong(MyEntity::getId).toArray(), epoch);
+            }
+            logger.debug("Loaded {} entities named {} from DB", loaded.size(), name);
+            return loaded;
+        } catch (Exception ex) {
+            logger.error("Error getting entities named {}: {}", name, ex.getMessage());
+            throw new CacheException("Error getting entities by name.", ex);
+        }
+    }
+
+    private Map<Long, MyEntity> loadMissing(Set<Long> distinct, Map<Long, MyEntity> found, List<Long> misses)
+            throws CacheException {
+        try {
+            int hits = found.size();
+            if (!misses.isEmpty()) {
+                List<MyEntity> loaded = loadAll(misses);
+                persistEvicted(store.putAllIfAbsent(loaded));
+                loaded.forEach(entity -> found.put(entity.getId(), entity));
+                for (Long id : misses) {
+                    if (!found.containsKey(id)) {
+                        recordMissing(id);
+                    }
                 }
             }
+            logger.debug("Batch get of {} ids: {} found in cache, {} loaded", distinct.size(), hits, found.size() - hits);
+            return inRequestOrder(distinct, found);
         } catch (Exception ex) {
-            logger.error("Error removing expired entries: {}", ex.getMessage());
+            logger.error("Error getting {} entities: {}", distinct.size(), ex.getMessage());
+            throw new CacheException("Error getting entities from cache.", ex);
+        }
+    }
+
+    @Override
+    public List<MyEntity> addAll(Collection<MyEntity> entities) throws CacheException {
+        if (entities == null || entities.stream().anyMatch(entity -> entity == null)) {
+            throw new CacheException("Cannot add a null entity to the cache.");
+        }
+
+        List<MyEntity> stored = new ArrayList<>(entities.size());
+        List<CacheEntry> evicted;
+        try {
+            List<MyEntity> toSave = new ArrayList<>();
+            Set<Long> existing = writeBehind != null ? existingIds(entities) : Set.of();
+            for (MyEntity entity : entities) {
+                if (entity.getId() != null && existing.contains(entity.getId())) {
+                    writeBehind.enqueue(entity);
+                    stored.add(unversioned(entity));
+                } else {
+                    toSave.add(entity);
+                }
+            }
+            if (!toSave.isEmpty()) {
+                stored.addAll(saver.saveAll(toSave));
+            }
+            evicted = store.putAll(stored);
+            if (nameIndex != null) {
+                stored.forEach(nameIndex::added);
+            }
+            if (offHeap != null) {
+                stored.forEach(entity -> offHeap.remove(entity.getId()));
+            }
+            if (negativeCache != null) {
+                stored.forEach(entity -> negativeCache.invalidate(entity.getId()));
+            }
+            logger.debug("{} entities added/updated in cache.", stored.size());
+        } catch (Exception ex) {
+            logger.error("Error adding {} entities to cache: {}", entities.size(), ex.getMessage());
+            throw new CacheException("Error adding entities to cache.", ex);
+        }
+        notifyWritten(stored.stream().map(MyEntity::getId).collect(Collectors.toList()));
+        persistEvicted(evicted);
+        return stored;
+    }
+
+    @Override
+    public void removeAllById(Collection<Long> ids) throws CacheException {
+        Set<Long> distinct = validIds(ids, "Cannot remove entities without valid IDs.");
+
+        try {
+            store.removeAll(distinct);
+            if (offHeap != null) {
+                distinct.forEach(offHeap::remove);
+            }
+            if (writeBehind != null) {
+                writeBehind.cancelAll(distinct);
+            }
+            repository.deleteAllByIdInBatch(distinct);
+            notifyWritten(distinct);
+            logger.debug("{} entities removed from cache and DB", distinct.size());
+        } catch (Exception ex) {
+            logger.error("Error removing {} entities: {}", distinct.size(), ex.getMessage());
+            throw new CacheException("Error removing entities from cache.", ex);
+        }
+    }
+
+    /** The queue deferred writes go through, or {@code null} without write-behind. */
+    WriteBehindWriter writeBehind() {
+        return writeBehind;
+    }
+
+    /** Registers a listener for the writes made through this service from now on. */
+    public void addWriteListener(WriteListener listener) {
+        writeListeners.add(listener);
+    }
+
+    @Override
+    public void invalidateAll(Collection<Long> ids) {
+        if (ids == null) {
+            return;
+        }
+        int removed = store.removeAll(ids);
+        if (offHeap != null) {
+            ids.forEach(offHeap::remove);
+        }
+        if (negativeCache != null) {
+            // The ids may have been created elsewhere, e.g. by another cluster member
+            ids.forEach(negativeCache::invalidate);
+        }
+        logger.debug("{} entities invalidated in cache. DB untouched.", removed);
+    }
+
+    @Override
+    public void forEachCached(long fromId, long toId, Consumer<MyEntity> action) {
+        store.scan(fromId, toId, SCAN_CHUNK_SIZE, action);
+    }
+
+    @Override
+    public void forEachStored(long fromId, long toId, Consumer<MyEntity> action) throws CacheException {
+        try {
+            repository.forEachByIdBetween(fromId, toId, action);
+        } catch (DataAccessException ex) {
+            logger.error("Error streaming entities {}..{} from DB: {}", fromId, toId, ex.getMessage());
+            throw new CacheException("Error reading entities from DB.", ex);
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        CacheStats stats = new CacheStats();
+        stats.setSize(store.size());
+        if (!weighted) {
+            stats.setMaxSize((int) store.getMaximumWeight());
+        }
+        stats.setWeightedSize(store.getWeightedSize());
+        stats.setPeakWeightedSize(store.getPeakWeightedSize());
+        stats.setMaxWeight(store.getMaximumWeight());
+        stats.setHitCount(metrics.getHitCount());
+        stats.setMissCount(metrics.getMissCount());
+        stats.setEvictionCount(store.getEvictionCount());
+        stats.setExpirationCount(store.getExpirationCount());
+        stats.setLoadFailureCount(metrics.getLoadFailureCount());
+        stats.setLoadCount(loader.getLoadCount());
+        stats.setCollapsedLoadCount(loader.getCollapsedCount());
+        stats.setLoadsInFlight(loader.getInFlightCount());
+        if (refresher != null) {
+            stats.setRefreshCount(refresher.getRefreshCount());
+            stats.setRefreshFailureCount(refresher.getFailureCount());
+            stats.setRefreshRejectedCount(refresher.getRejectedCount());
+        }
+        if (nameIndex != null) {
+            stats.setNameIndexSize(nameIndex.size());
+            stats.setNameIndexHitCount(nameIndex.getHitCount());
+            stats.setNameIndexMissCount(nameIndex.getMissCount());
+        }
+        if (negativeCache != null) {
+            stats.setNegativeSize(negativeCache.size());
+            stats.setNegativeHitCount(negativeCache.getHitCount());
+            stats.setNegativeMissCount(negativeCache.getMissCount());
+        }
+        if (offHeap != null) {
+            stats.setOffHeapSize(offHeap.size());
+            stats.setOffHeapCapacityBytes(offHeap.getCapacityBytes());
+            stats.setOffHeapHitCount(offHeap.getHitCount());
+            stats.setOffHeapMissCount(offHeap.getMissCount());
+            stats.setOffHeapEvictionCount(offHeap.getEvictionCount());
+        }
+        return stats;
+    }
+
+    private MyEntity load(Long id) throws CacheException {
+        long start = System.nanoTime();
+        Optional<MyEntity> loaded;
+        try {
+            loaded = loadFromTiers(id);
+        } catch (RuntimeException ex) {
+            metrics.recordLoadFailure();
+            throw ex;
         } finally {
-            rwLock.writeLock().unlock();
+            metrics.recordLoad(start);
+        }
+        if (loaded.isEmpty()) {
+            metrics.recordLoadNotFound(1);
+            recordMissing(id);
+            throw new CacheException("Entity with id " + id + " not found in cache or DB.");
         }
+        metrics.recordLoadSuccesses(1);
+        MyEntity entity = loaded.get();
+        persistEvicted(store.putIfAbsent(entity));
+        return entity;
     }
 
-    @PreDestroy
-    public void onDestroy() {
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            logger.info("Scheduler shut down on bean destruction.");
+    private Optional<MyEntity> loadFromTiers(Long id) {
+        if (offHeap != null) {
+            MyEntity promoted = offHeap.take(id);
+            if (promoted != null) {
+                logger.debug("Entity with id {} promoted from off-heap tier", id);
+                return Optional.of(promoted);
+            }
+        }
+        // Load outside of any lock; putIfAbsent keeps a concurrent add() from being overwritten
+        Optional<MyEntity> fromDb = findPersisted(id);
+        fromDb.ifPresent(entity -> logger.debug("Entity with id {} fetched from DB and added to cache", id));
+        return fromDb;
+    }
+
+    /**
+     * Schedules a background reload when the entry is older than the refresh threshold;
+     * the caller keeps the current value either way.
+     */
+    private void refreshIfStale(CacheEntry entry) {
+        if (refresher != null && System.currentTimeMillis() - entry.getWriteTime() > refreshAfterWriteMillis) {
+            refresher.refresh(entry.getKey(), () -> reload(entry));
         }
     }
 
-    // ✅ Custom internal CacheEntry class (not Hibernate's!)
-    private static class CacheEntry {
-        private final MyEntity entity;
-        private long lastAccessTime;
+    private void reload(CacheEntry entry) {
+        Long id = entry.getKey();
+        Optional<MyEntity> fresh = findPersisted(id);
+        if (fresh.isPresent()) {
+            persistEvicted(store.replace(entry, fresh.get()));
+            logger.debug("Entity with id {} refreshed from DB", id);
+        } else if (store.remove(entry)) {
+            recordMissing(id);
+            logger.debug("Entity with id {} no longer in DB, dropped on refresh", id);
+        }
+    }
 
-        CacheEntry(MyEntity entity) {
-            this.entity = entity;
-            this.lastAccessTime = System.currentTimeMillis();
+    private void recordMissing(Long id) {
+        if (negativeCache == null) {
+            return;
+        }
+        negativeCache.recordMissing(id);
+        // A concurrent add() caches before it invalidates, so if it raced with this load we see it here
+        if (store.getIfPresent(id) != null) {
+            negativeCache.invalidate(id);
         }
+    }
 
-        void updateAccessTime() {
-            this.lastAccessTime = System.currentTimeMillis();
+    private List<MyEntity> loadAll(List<Long> ids) {
+        long start = System.nanoTime();
+        List<MyEntity> loaded;
+        try {
+            loaded = loadAllFromTiers(ids);
+        } catch (RuntimeException ex) {
+            metrics.recordLoadFailure();
+            throw ex;
+        } finally {
+            metrics.recordLoad(start);
         }
+        metrics.recordLoadSuccesses(loaded.size());
+        metrics.recordLoadNotFound(ids.size() - loaded.size());
+        return loaded;
+    }
 
-        boolean isExpired(long expirationMillis) {
-            return (System.currentTimeMillis() - lastAccessTime) > expirationMillis;
+    private List<MyEntity> loadAllFromTiers(List<Long> ids) {
+        List<MyEntity> loaded = new ArrayList<>(ids.size());
+        List<Long> toQuery = ids;
+        if (offHeap != null) {
+            Map<Long, MyEntity> promoted = offHeap.takeAll(ids);
+            loaded.addAll(promoted.values());
+            toQuery = new ArrayList<>(ids.size() - promoted.size());
+            for (Long id : ids) {
+                if (!promoted.containsKey(id)) {
+                    toQuery.add(id);
+                }
+            }
+        }
+        if (writeBehind != null) {
+            List<Long> notQueued = new ArrayList<>(toQuery.size());
+            for (Long id : toQuery) {
+                MyEntity queued = writeBehind.getPending(id);
+                if (queued != null) {
+                    loaded.add(queued);
+                } else {
+                    notQueued.add(id);
+                }
+            }
+            toQuery = notQueued;
         }
+        if (!toQuery.isEmpty()) {
+            repository.findAllById(toQuery).forEach(loaded::add);
+        }
+        return loaded;
+    }
 
-        MyEntity getEntity() {
-            return entity;
+    private static Map<Long, MyEntity> inRequestOrder(Set<Long> distinct, Map<Long, MyEntity> found) {
+        Map<Long, MyEntity> ordered = new LinkedHashMap<>();
+        for (Long id : distinct) {
+            MyEntity entity = found.get(id);
+            if (entity != null) {
+                ordered.put(id, entity);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Runs a blocking call on the I/O executor. The call is expected to throw {@link CacheException}
+     * itself; only a rejected handoff is wrapped here.
+     */
+    private <T> CompletableFuture<T> callAsync(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new CacheException("Too many pending cache operations.", ex));
+        }
+        return future;
+    }
+
+    private boolean compareAndSet(Long id, String name, long expectedVersion) throws CacheException {
+        try {
+            return repository.compareAndSet(id, name, expectedVersion) == 1;
+        } catch (RuntimeException ex) {
+            logger.error("Error replacing entity with id {}: {}", id, ex.getMessage());
+            throw new CacheException("Error replacing entity in cache.", ex);
+        }
+    }
+
+    private void notifyWritten(Collection<Long> ids) {
+        for (WriteListener listener : writeListeners) {
+            listener.written(ids);
+        }
+    }
+
+    private List<CacheEntry> cache(MyEntity entity, long ttlMillis) {
+        return ttlMillis == DEFAULT_TTL ? store.put(entity) : store.put(entity, ttlMillis);
+    }
+
+    private static long requirePositiveTtl(long ttlMillis) throws CacheException {
+        if (ttlMillis <= 0) {
+            throw new CacheException("TTL must be positive, was " + ttlMillis + " ms.");
+        }
+        return ttlMillis;
+    }
+
+    /**
+     * Whether the write can be queued. Only a row known to exist can be: saving an id the table does not
+     * have inserts the row under a newly generated id, which only a synchronous save can hand back.
+     */
+    private boolean canWriteBehind(MyEntity entity) {
+        Long id = entity.getId();
+        return writeBehind != null && id != null && (isKnownToExist(id) || repository.existsById(id));
+    }
+
+    /** The ids among the entities whose rows exist, with one query for those not already cached or queued. */
+    private Set<Long> existingIds(Collection<MyEntity> entities) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (MyEntity entity : entities) {
+            Long id = entity.getId();
+            if (id == null) {
+                continue;
+            }
+            if (isKnownToExist(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (Object[] row : repository.findVersionsByIdIn(unknown)) {
+                existing.add((Long) row[0]);
+            }
+        }
+        return existing;
+    }
+
+    /** Cached entities were loaded from or saved to the DB, and only writes of existing rows are queued. */
+    private boolean isKnownToExist(Long id) {
+        return store.getIfPresent(id) != null || writeBehind.getPending(id) != null;
+    }
+
+    /** The cached copy of a deferred write: its version is only known once the write is flushed. */
+    private static MyEntity unversioned(MyEntity entity) {
+        return new MyEntity(entity.getId(), entity.getName());
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private static Set<Long> validIds(Collection<Long> ids, String message) throws CacheException {
+        if (ids == null || ids.stream().anyMatch(id -> id == null)) {
+            throw new CacheException(message);
+        }
+        return new LinkedHashSet<>(ids);
+    }
+
+    private Optional<MyEntity> findPersisted(Long id) {
+        if (writeBehind != null) {
+            MyEntity queued = writeBehind.getPending(id);
+            if (queued != null) {
+                return Optional.of(queued);
+            }
+        }
+        return repository.findById(id);
+    }
+
+    private void persistEvicted(List<CacheEntry> evicted) {
+        List<MyEntity> toPersist;
+        if (offHeap != null) {
+            // Demote to the off-heap tier, deadlines included; only what falls out of it goes to the repository
+            toPersist = offHeap.putAll(evicted);
+        } else {
+            toPersist = evicted.stream().map(CacheEntry::getEntity).collect(Collectors.toList());
+        }
+        if (writeBehind != null) {
+            // Every copy is either queued, so carries no version, or came from the DB: nothing to write
+            return;
+        }
+        for (MyEntity toEvict : toPersist) {
+            logger.debug("Evicting entity with id {} to database due to size limit.", toEvict.getId());
+            try {
+                // Only over the version it was loaded or stored with, so it cannot undo a newer write
+                if (!saver.saveIfCurrent(toEvict)) {
+                    logger.debug("Evicted entity with id {} is out of date, not written back.", toEvict.getId());
+                }
+            } catch (Exception e) {
+                logger.error("Failed to save evicted entity with id {} to DB: {}", toEvict.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void registerMetrics() {
+        metrics.gauge("cache.size", "Entries held on heap", store, ConcurrentCacheStore::size);
+        metrics.gauge("cache.max.weight", "Current heap capacity, in bytes if weighted and entries otherwise",
+                store, ConcurrentCacheStore::getMaximumWeight);
+        metrics.gauge("cache.weight", "Total weight of the entries held on heap", store,
+                ConcurrentCacheStore::getWeightedSize);
+        metrics.gauge("cache.weight.peak", "Highest total weight held on heap", store,
+                ConcurrentCacheStore::getPeakWeightedSize);
+        metrics.functionCounter("cache.evictions", "Entries evicted for capacity", store,
+                ConcurrentCacheStore::getEvictionCount);
+        metrics.functionCounter("cache.expirations", "Entries removed after expiring", store,
+                ConcurrentCacheStore::getExpirationCount);
+        metrics.functionCounter("cache.loads.collapsed", "Misses that joined a load already in flight", loader,
+                SingleFlightLoader::getCollapsedCount);
+        if (negativeCache != null) {
+            metrics.gauge("cache.negative.size", "Ids remembered as missing", negativeCache, NegativeCache::size);
+            metrics.functionCounter("cache.negative.hits", "Lookups answered by the negative cache", negativeCache,
+                    NegativeCache::getHitCount);
+        }
+        if (nameIndex != null) {
+            metrics.gauge("cache.name.index.size", "Names whose entities are all cached", nameIndex, NameIndex::size);
+            metrics.functionCounter("cache.name.index.hits", "Lookups by name answered without the DB", nameIndex,
+                    NameIndex::getHitCount);
+        }
+        if (refresher != null) {
+            metrics.functionCounter("cache.refreshes", "Completed refresh-ahead reloads", refresher,
+                    RefreshAheadExecutor::getRefreshCount);
+            metrics.functionCounter("cache.refreshes.rejected", "Refreshes skipped because the pool was full",
+                    refresher, RefreshAheadExecutor::getRejectedCount);
+        }
+        if (offHeap != null) {
+            metrics.gauge("cache.offheap.size", "Entries held in the off-heap tier", offHeap, OffHeapStore::size);
+            metrics.functionCounter("cache.offheap.hits", "Misses served by the off-heap tier", offHeap,
+                    OffHeapStore::getHitCount);
+            metrics.functionCounter("cache.offheap.evictions", "Entries evicted from the off-heap tier", offHeap,
+                    OffHeapStore::getEvictionCount);
+        }
+        metrics.functionCounter("cache.async.rejected", "Asynchronous calls rejected by the saturated I/O executor",
+                ioExecutor, AsyncLoadExecutor::getRejectedCount);
+        if (writeBehind != null && ownsWriteBehind) {
+            metrics.gauge("cache.writebehind.queued", "Writes waiting to be flushed", writeBehind,
+                    WriteBehindWriter::size);
+        }
+    }
+
+    private static ConcurrentCacheStore createStore(CacheProperties properties, RemovalListener removalListener,
+                                                    Expiry customExpiry) {
+        CacheProperties.Eviction eviction = properties.getEviction();
+        Expiry expiry = properties.getExpiryMode().create(properties.getExpirationMillis(), customExpiry);
+        long maxWeightBytes = properties.getMaxWeightBytes();
+        // Adaptive sizing may raise the capacity later; per-entry structures are sized for the highest it can go
+        CacheProperties.Adaptive adaptive = properties.getAdaptive();
+        int headroomPercent = adaptive.isEnabled() ? Math.max(100, adaptive.getMaxPercent()) : 100;
+        if (maxWeightBytes <= 0) {
+            long maxEntries = (long) properties.getMaxSize() * headroomPercent / 100;
+            return new ConcurrentCacheStore(eviction.createPolicy(properties.getMaxSize(), maxEntries),
+                    Weigher.singleton(), expiry, removalListener);
+        }
+        // Every entity weighs at least as much as an empty one, which bounds how many can fit
+        Weigher weigher = Weigher.retainedSize();
+        long maxEntries = Math.max(1, maxWeightBytes / weigher.weigh(new MyEntity(0L, null)) * headroomPercent / 100);
+        return new ConcurrentCacheStore(eviction.createPolicy(maxWeightBytes, maxEntries), weigher, expiry,
+                removalListener);
+    }
+
+    private static long configuredCapacity(CacheProperties properties) {
+        return properties.getMaxWeightBytes() > 0 ? properties.getMaxWeightBytes() : properties.getMaxSize();
+    }
+
+    private void restoreSnapshot(int loadThreads) {
+        long start = System.currentTimeMillis();
+        try {
+            int restored = CacheSnapshot.load(store, snapshotFile, loadThreads);
+            logger.info("Restored {} entities from cache snapshot {} in {} ms", restored, snapshotFile,
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException ex) {
+            store.clear();
+            logger.warn("Ignoring unusable cache snapshot {}, starting cold: {}", snapshotFile, ex.getMessage());
+        }
+    }
+
+    /** Tops the cache up from the repository; whatever the snapshot already restored is kept. */
+    private void preload(CachePreloader preloader) {
+        long start = System.currentTimeMillis();
+        try {
+            // The budget is only an estimate when weighted, so stop at the first page that forced evictions
+            AtomicBoolean full = new AtomicBoolean();
+            int loaded = preloader.preload(store.estimateRemainingEntries(), page -> {
+                List<CacheEntry> evicted = store.putAllIfAbsent(page);
+                if (!evicted.isEmpty()) {
+                    full.set(true);
+                }
+                persistEvicted(evicted);
+            }, full::get);
+            logger.info("Preloaded {} entities into the cache in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Cache preload interrupted after {} ms", System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Cache preload failed, continuing with {} entities: {}", store.size(), ex.getMessage());
+        }
+    }
+
+    private void saveSnapshot() {
+        try {
+            int saved = CacheSnapshot.write(store, snapshotFile);
+            logger.debug("Saved {} entities to cache snapshot {}", saved, snapshotFile);
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Failed to save cache snapshot {}: {}", snapshotFile, ex.getMessage());
+        }
+    }
+
+    private void removeExpiredEntries() {
+        try {
+            int removed = store.expireEntries();
+            if (removed > 0) {
+                logger.debug("Removed {} expired entities from cache", removed);
+            }
+        } catch (Exception ex) {
+            logger.error("Error removing expired entries: {}", ex.getMessage());
+        }
+    }
+
+    private void adjustCapacity() {
+        try {
+            adaptiveCapacity.adjust();
+        } catch (Exception ex) {
+            logger.error("Error adjusting cache capacity: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onDestroy() {
+        // Let accepted asynchronous writes finish before the tiers they write to are closed
+        ioExecutor.shutdown();
+        if (writeBehind != null && ownsWriteBehind) {
+            writeBehind.close();
+        }
+        if (offHeap != null) {
+            offHeap.close();
+        }
+        if (refresher != null) {
+            refresher.shutdown();
+        }
+        if (adaptiveCapacity != null) {
+            adaptiveCapacity.close();
+        }
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.shutdownNow();
+            logger.info("Scheduler shut down on bean destruction.");
+        }
+        if (snapshotFile != null) {
+            saveSnapshot();
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.example.cacheservice.service;
+
+import lombok.Data;
+
+/**
+ * Point-in-time snapshot of cache counters.
+ */
+@Data
+public class CacheStats {
+    private int size;
+    /** Entry limit; 0 when the cache is bounded by {@code cache.maxWeightBytes} instead. */
+    private int maxSize;
+    /** Total weight held on heap: estimated bytes when bounded by weight, otherwise the entry count. */
+    private long weightedSize;
+    private long peakWeightedSize;
+    private long maxWeight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+    private long loadFailureCount;
+    /** Loads that actually reached the repository. */
+    private long loadCount;
+    /** Misses that waited on a load already in flight instead of querying again. */
+    private long collapsedLoadCount;
+    private int loadsInFlight;
+    /** Background refresh-ahead reloads that completed. */
+    private long refreshCount;
+    private long refreshFailureCount;
+    /** Refreshes skipped because the refresh pool was saturated. */
+    private long refreshRejectedCount;
+    /** Names whose entities are all cached, so lookups by them skip the DB. */
+    private int nameIndexSize;
+    private long nameIndexHitCount;
+    private long nameIndexMissCount;
+    private int negativeSize;
+    /** Lookups answered "not found" from the negative cache without reaching the repository. */
+    private long negativeHitCount;
+    private long negativeMissCount;
+    private int offHeapSize;
+    private long offHeapCapacityBytes;
+    private long offHeapHitCount;
+    private long offHeapMissCount;
+    private long offHeapEvictionCount;
+    /** Cluster mode only: members on the ring, including this one. */
+    private int clusterMembers;
+    private int nearCacheSize;
+    /** Lookups sent to the owning member because the id was not in the near-cache. */
+    private long remoteGetCount;
+    private long remoteFailureCount;
+    private long invalidationsSent;
+    private long invalidationsReceived;
+}
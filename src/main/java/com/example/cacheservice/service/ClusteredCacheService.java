@@ -0,0 +1,459 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.cache.Expiry;
+import com.example.cacheservice.cache.RemovalListener;
+import com.example.cacheservice.cache.Weigher;
+import com.example.cacheservice.cache.eviction.LruPolicy;
+import com.example.cacheservice.cluster.ClusterClient;
+import com.example.cacheservice.cluster.HashRing;
+import com.example.cacheservice.cluster.InvalidationMessage;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.CacheException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Cluster mode: shards the cache across the configured members on top of the local {@link CacheServiceImpl}.
+ * <p>
+ * A {@link HashRing} assigns every id to one owner. The owner caches it as usual; other members
+ * fetch it from the owner over HTTP and keep it in a small, short-lived near-cache, so hot keys are
+ * not duplicated across every node's main cache. Writes go to the shared DB locally and are then
+ * broadcast as invalidations, so every member drops its copy. If the owner cannot be reached the
+ * member reads through its own cache instead. Invalidations are best effort; the near-cache TTL and
+ * the regular expiry bound how long a lost one can leave a stale value behind.
+ * <p>
+ * Write-behind and the off-heap tier cannot be combined with cluster mode: a queued write or a demoted
+ * copy is out of reach of the invalidations, and could outlive or overwrite a newer write by another member.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "cache.cluster", name = "enabled", havingValue = "true")
+public class ClusteredCacheService implements CacheService, AsyncCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusteredCacheService.class);
+
+    private final CacheServiceImpl local;
+    private final HashRing ring;
+    private final String self;
+    private final List<String> peers;
+    private final ConcurrentCacheStore nearCache;
+    private final long nearCacheTtlMillis;
+    private final ClusterClient client;
+    private static final int EPOCH_STRIPES = 256;
+
+    // Bumped per id stripe on every invalidation received, so a remote read that raced with one is not cached
+    private final AtomicLongArray invalidationEpochs = new AtomicLongArray(EPOCH_STRIPES);
+    private final LongAdder remoteGets = new LongAdder();
+    private final LongAdder remoteFailures = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+
+    @Autowired
+    public ClusteredCacheService(CacheServiceImpl local, CacheProperties properties, ObjectMapper objectMapper) {
+        this(local, clusterSettings(properties),
+                new ClusterClient(objectMapper, Duration.ofMillis(properties.getCluster().getRequestTimeoutMillis())));
+    }
+
+    ClusteredCacheService(CacheServiceImpl local, CacheProperties.Cluster settings, ClusterClient client) {
+        if (settings.getSelf() == null || !settings.getMembers().contains(settings.getSelf())) {
+            throw new IllegalStateException("cache.cluster.self must be one of cache.cluster.members");
+        }
+        this.local = local;
+        this.self = settings.getSelf();
+        this.ring = new HashRing(settings.getMembers(), settings.getVirtualNodes());
+        this.peers = ring.peersOf(self);
+        // Expire after write: reads must not keep a copy alive that a lost invalidation has left stale
+        this.nearCache = new ConcurrentCacheStore(new LruPolicy(Math.max(1, settings.getNearCacheSize())),
+                Weigher.singleton(), Expiry.afterWrite(settings.getNearCacheTtlMillis()), RemovalListener.none());
+        this.nearCacheTtlMillis = settings.getNearCacheTtlMillis();
+        this.client = client;
+        logger.info("Cluster mode: {} of {} members", self, ring.getNodes().size());
+    }
+
+    private static CacheProperties.Cluster clusterSettings(CacheProperties properties) {
+        // Both keep copies that an invalidation from another member cannot reach
+        if (properties.getWriteBehind().isEnabled()) {
+            throw new IllegalStateException("cache.writeBehind.enabled cannot be combined with cache.cluster.enabled");
+        }
+        if (properties.getOffHeap().isEnabled()) {
+            throw new IllegalStateException("cache.offHeap.enabled cannot be combined with cache.cluster.enabled");
+        }
+        return properties.getCluster();
+    }
+
+    @Override
+    public void add(MyEntity e1) throws CacheException {
+        await(addAsync(e1));
+    }
+
+    /**
+     * The TTL only applies to the copy kept on this node: in its cache if it owns the id, otherwise in its
+     * near-cache, where it cannot outlive the near-cache TTL. The owner loads its own copy with the default.
+     */
+    @Override
+    public void add(MyEntity entity, long ttlMillis) throws CacheException {
+        await(addAsync(entity, ttlMillis));
+    }
+
+    @Override
+    public MyEntity replace(MyEntity entity, long expectedVersion) throws CacheException {
+        return await(replaceAsync(entity, expectedVersion));
+    }
+
+    @Override
+    public MyEntity replace(MyEntity entity, long expectedVersion, long ttlMillis) throws CacheException {
+        return await(replaceAsync(entity, expectedVersion, ttlMillis));
+    }
+
+    @Override
+    public void remove(MyEntity e1) throws CacheException {
+        await(removeAsync(e1));
+    }
+
+    @Override
+    public void removeAll() {
+        local.removeAll();
+        nearCache.clear();
+        broadcast(new InvalidationMessage(self, List.of(), true));
+    }
+
+    @Override
+    public MyEntity get(MyEntity e1) throws CacheException {
+        if (e1 == null || e1.getId() == null || isOwner(e1.getId())) {
+            return local.get(e1);
+        }
+        return await(getAsync(e1.getId()));
+    }
+
+    @Override
+    public List<MyEntity> getByName(String name) throws CacheException {
+        return await(getByNameAsync(name));
+    }
+
+    /** Clears this member's caches only; like the single-node clear, nothing is broadcast. */
+    @Override
+    public void clear() {
+        local.clear();
+        nearCache.clear();
+    }
+
+    @Override
+    public Map<Long, MyEntity> getAll(Collection<Long> ids) throws CacheException {
+        return await(getAllAsync(ids));
+    }
+
+    @Override
+    public List<MyEntity> addAll(Collection<MyEntity> entities) throws CacheException {
+        return await(addAllAsync(entities));
+    }
+
+    @Override
+    public void removeAllById(Collection<Long> ids) throws CacheException {
+        await(removeAllByIdAsync(ids));
+    }
+
+    @Override
+    public void invalidateAll(Collection<Long> ids) {
+        if (ids == null) {
+            return;
+        }
+        local.invalidateAll(ids);
+        nearCache.removeAll(ids);
+        broadcast(new InvalidationMessage(self, new ArrayList<>(ids), false));
+    }
+
+    @Override
+    public void forEachCached(long fromId, long toId, Consumer<MyEntity> action) {
+        local.forEachCached(fromId, toId, action);
+    }
+
+    @Override
+    public void forEachStored(long fromId, long toId, Consumer<MyEntity> action) throws CacheException {
+        local.forEachStored(fromId, toId, action);
+    }
+
+    @Override
+    public CacheStats stats() {
+        CacheStats stats = local.stats();
+        stats.setClusterMembers(ring.getNodes().size());
+        stats.setNearCacheSize(nearCache.size());
+        stats.setRemoteGetCount(remoteGets.sum());
+        stats.setRemoteFailureCount(remoteFailures.sum());
+        stats.setInvalidationsSent(invalidationsSent.sum());
+        stats.setInvalidationsReceived(invalidationsReceived.sum());
+        return stats;
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> getAsync(Long id) {
+        if (id == null || isOwner(id)) {
+            return local.getAsync(id);
+        }
+        MyEntity near = nearCache.getIfPresent(id);
+        if (near != null) {
+            return CompletableFuture.completedFuture(near);
+        }
+
+        String owner = ring.ownerOf(id);
+        long epoch = epochOf(id);
+        remoteGets.increment();
+        return client.fetch(owner, id).handle((found, ex) -> {
+            if (ex != null) {
+                remoteFailures.increment();
+                logger.warn("Owner {} unreachable for id {}, reading through locally: {}", owner, id,
+                        unwrap(ex).getMessage());
+                return local.getAsync(id);
+            }
+            if (found.isEmpty()) {
+                return CompletableFuture.<MyEntity>failedFuture(
+                        new CacheException("Entity with id " + id + " not found in cache or DB."));
+            }
+            cacheNear(found.get(), epoch);
+            return CompletableFuture.completedFuture(found.get());
+        }).thenCompose(result -> result);
+    }
+
+    /**
+     * Always one DB query: a write on another member only broadcasts ids, so no member could keep a
+     * name index complete, and the local service runs without one in cluster mode.
+     */
+    @Override
+    public CompletableFuture<List<MyEntity>> getByNameAsync(String name) {
+        return local.getByNameAsync(name).thenApply(found -> {
+            // The query cached every match locally; only the ones this member owns belong there
+            List<Long> notOwned = found.stream().map(MyEntity::getId).filter(id -> !isOwner(id))
+                    .collect(Collectors.toList());
+            if (!notOwned.isEmpty()) {
+                local.invalidateAll(notOwned);
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, MyEntity>> getAllAsync(Collection<Long> ids) {
+        if (ids == null || ids.stream().anyMatch(id -> id == null)) {
+            return local.getAllAsync(ids);
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, MyEntity> found = new ConcurrentHashMap<>();
+        List<Long> owned = new ArrayList<>();
+        Map<String, List<Long>> remote = new LinkedHashMap<>();
+        for (Long id : distinct) {
+            if (isOwner(id)) {
+                owned.add(id);
+                continue;
+            }
+            MyEntity near = nearCache.getIfPresent(id);
+            if (near != null) {
+                found.put(id, near);
+            } else {
+                remote.computeIfAbsent(ring.ownerOf(id), owner -> new ArrayList<>()).add(id);
+            }
+        }
+
+        Map<Long, Long> epochs = new HashMap<>();
+        remote.values().forEach(remoteIds -> remoteIds.forEach(id -> epochs.put(id, epochOf(id))));
+        List<CompletableFuture<Map<Long, MyEntity>>> parts = new ArrayList<>();
+        if (!owned.isEmpty()) {
+            parts.add(local.getAllAsync(owned));
+        }
+        remote.forEach((owner, ownerIds) -> {
+            remoteGets.increment();
+            parts.add(client.fetchAll(owner, ownerIds).handle((fetched, ex) -> {
+                if (ex != null) {
+                    remoteFailures.increment();
+                    logger.warn("Owner {} unreachable for {} ids, reading through locally: {}", owner,
+                            ownerIds.size(), unwrap(ex).getMessage());
+                    return local.getAllAsync(ownerIds);
+                }
+                fetched.values().forEach(entity -> cacheNear(entity, epochs.get(entity.getId())));
+                return CompletableFuture.completedFuture(fetched);
+            }).thenCompose(result -> result));
+        });
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(done -> {
+            parts.forEach(part -> found.putAll(part.join()));
+            Map<Long, MyEntity> ordered = new LinkedHashMap<>();
+            for (Long id : distinct) {
+                MyEntity entity = found.get(id);
+                if (entity != null) {
+                    ordered.put(id, entity);
+                }
+            }
+            return ordered;
+        });
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> addAsync(MyEntity entity) {
+        return local.addAsync(entity).thenApply(stored -> {
+            afterWrite(List.of(stored), nearCacheTtlMillis);
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> addAsync(MyEntity entity, long ttlMillis) {
+        return local.addAsync(entity, ttlMillis).thenApply(stored -> {
+            afterWrite(List.of(stored), Math.min(ttlMillis, nearCacheTtlMillis));
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<MyEntity>> addAllAsync(Collection<MyEntity> entities) {
+        return local.addAllAsync(entities).thenApply(stored -> {
+            afterWrite(stored, nearCacheTtlMillis);
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion) {
+        return local.replaceAsync(entity, expectedVersion).thenApply(stored -> {
+            afterWrite(List.of(stored), nearCacheTtlMillis);
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<MyEntity> replaceAsync(MyEntity entity, long expectedVersion, long ttlMillis) {
+        return local.replaceAsync(entity, expectedVersion, ttlMillis).thenApply(stored -> {
+            afterWrite(List.of(stored), Math.min(ttlMillis, nearCacheTtlMillis));
+            return stored;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(MyEntity entity) {
+        return local.removeAsync(entity).thenRun(() -> afterRemove(List.of(entity.getId())));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllByIdAsync(Collection<Long> ids) {
+        return local.removeAllByIdAsync(ids).thenRun(() -> afterRemove(new ArrayList<>(ids)));
+    }
+
+    /**
+     * Serves a lookup from another member. Only reads this member's own cache and the DB, never
+     * another member, so requests cannot bounce around the ring.
+     */
+    public CompletableFuture<Map<Long, MyEntity>> getOwned(Collection<Long> ids) {
+        return local.getAllAsync(ids);
+    }
+
+    /** Applies an invalidation broadcast by another member. */
+    public void onInvalidation(InvalidationMessage message) {
+        invalidationsReceived.increment();
+        if (message.isAll()) {
+            for (int i = 0; i < EPOCH_STRIPES; i++) {
+                invalidationEpochs.incrementAndGet(i);
+            }
+            local.clear();
+            nearCache.clear();
+        } else {
+            message.getIds().forEach(id -> invalidationEpochs.incrementAndGet(stripe(id)));
+            local.invalidateAll(message.getIds());
+            nearCache.removeAll(message.getIds());
+        }
+        logger.debug("Applied invalidation of {} from {}", message.isAll() ? "all ids" : message.getIds(),
+                message.getOrigin());
+    }
+
+    public boolean isOwner(long id) {
+        return self.equals(ring.ownerOf(id));
+    }
+
+    private void afterWrite(List<MyEntity> stored, long nearTtlMillis) {
+        // The local write cached every entity; ones owned elsewhere belong in the near-cache instead
+        List<Long> notOwned = stored.stream().map(MyEntity::getId).filter(id -> !isOwner(id))
+                .collect(Collectors.toList());
+        if (!notOwned.isEmpty()) {
+            local.invalidateAll(notOwned);
+            for (MyEntity entity : stored) {
+                if (!isOwner(entity.getId())) {
+                    nearCache.put(entity, nearTtlMillis);
+                }
+            }
+        }
+        broadcast(new InvalidationMessage(self, stored.stream().map(MyEntity::getId).collect(Collectors.toList()),
+                false));
+    }
+
+    private void afterRemove(List<Long> ids) {
+        nearCache.removeAll(ids);
+        broadcast(new InvalidationMessage(self, ids, false));
+    }
+
+    private long epochOf(long id) {
+        return invalidationEpochs.get(stripe(id));
+    }
+
+    private static int stripe(long id) {
+        return (int) (id ^ (id >>> 32)) & (EPOCH_STRIPES - 1);
+    }
+
+    private void cacheNear(MyEntity entity, Long epoch) {
+        nearCache.put(entity);
+        if (epoch == null || epochOf(entity.getId()) != epoch) {
+            // An invalidation arrived while the value was in flight; it may be stale
+            nearCache.remove(entity.getId());
+        }
+    }
+
+    private void broadcast(InvalidationMessage message) {
+        for (String peer : peers) {
+            invalidationsSent.increment();
+            client.invalidate(peer, message).whenComplete((ignored, ex) -> {
+                if (ex != null) {
+                    logger.warn("Failed to send invalidation to {}: {}", peer, unwrap(ex).getMessage());
+                }
+            });
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws CacheException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Interrupted while waiting for the cache.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof CacheException) {
+                throw (CacheException) cause;
+            }
+            throw new CacheException("Error accessing the cluster cache.", cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+}
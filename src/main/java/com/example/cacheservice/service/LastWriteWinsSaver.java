@@ -0,0 +1,100 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves entities unconditionally on top of the entity's optimistic locking.
+ * <p>
+ * {@link MyEntity} carries a JPA version, so Hibernate only updates a row whose version matches the
+ * one on the entity. An unconditional write does not care which version it replaces: before saving,
+ * the row's current version is read (a primary-key lookup, one query per batch) and stamped on the
+ * entity. If another writer got in between, the version is read again and the save retried once.
+ * Entities without an id are inserted as they are.
+ * <p>
+ * Copies that were not written by the caller, such as entries evicted from the cache, are saved with
+ * {@link #saveIfCurrent} instead, so an outdated copy never replaces a newer row.
+ */
+final class LastWriteWinsSaver {
+
+    // Saving an id that is not in the table inserts the row as before entities were versioned, but under a
+    // newly generated id rather than this one; the caller has to use the id of the entity returned
+    private static final long ABSENT = 0L;
+
+    private final MyEntityRepository repository;
+
+    LastWriteWinsSaver(MyEntityRepository repository) {
+        this.repository = repository;
+    }
+
+    MyEntity save(MyEntity entity) {
+        if (entity.getId() == null) {
+            return repository.save(entity);
+        }
+        try {
+            return repository.save(withCurrentVersion(entity));
+        } catch (OptimisticLockingFailureException ex) {
+            return repository.save(withCurrentVersion(entity));
+        }
+    }
+
+    /**
+     * Saves the entity over the row version it carries, the one it was loaded or stored with. Returns
+     * {@code false} without writing if the row has moved on or is gone.
+     */
+    boolean saveIfCurrent(MyEntity entity) {
+        // Checked first, since saving a deleted row would insert it again under a new id
+        Long current = repository.findVersionById(entity.getId()).orElse(null);
+        if (current == null || !current.equals(entity.getVersion())) {
+            return false;
+        }
+        try {
+            repository.save(entity);
+            return true;
+        } catch (OptimisticLockingFailureException ex) {
+            return false;
+        }
+    }
+
+    List<MyEntity> saveAll(List<MyEntity> entities) {
+        try {
+            return repository.saveAll(withCurrentVersions(entities));
+        } catch (OptimisticLockingFailureException ex) {
+            return repository.saveAll(withCurrentVersions(entities));
+        }
+    }
+
+    private MyEntity withCurrentVersion(MyEntity entity) {
+        entity.setVersion(repository.findVersionById(entity.getId()).orElse(ABSENT));
+        return entity;
+    }
+
+    private List<MyEntity> withCurrentVersions(List<MyEntity> entities) {
+        List<Long> ids = new ArrayList<>(entities.size());
+        for (MyEntity entity : entities) {
+            if (entity.getId() != null) {
+                ids.add(entity.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return entities;
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object[] row : repository.findVersionsByIdIn(ids)) {
+            versions.put((Long) row[0], (Long) row[1]);
+        }
+        for (MyEntity entity : entities) {
+            if (entity.getId() != null) {
+                Long version = versions.get(entity.getId());
+                entity.setVersion(version == null ? ABSENT : version);
+            }
+        }
+        return entities;
+    }
+}
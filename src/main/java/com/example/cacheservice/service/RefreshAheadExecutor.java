@@ -0,0 +1,82 @@
+package com.example.cacheservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs background reloads of entries that are due for refresh on a bounded pool.
+ * <p>
+ * At most one reload per id is queued or running at a time. When the pool and its queue are
+ * full the refresh is skipped; the entry keeps being served and is retried on a later read.
+ */
+public class RefreshAheadExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAheadExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public RefreshAheadExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules a reload of the id unless one is already pending.
+     */
+    public void refresh(Long id, Runnable reload) {
+        if (!refreshing.add(id)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    reload.run();
+                    refreshes.increment();
+                } catch (Exception ex) {
+                    failures.increment();
+                    logger.warn("Refresh of entity with id {} failed: {}", id, ex.getMessage());
+                } finally {
+                    refreshing.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(id);
+            rejections.increment();
+        }
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejections.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
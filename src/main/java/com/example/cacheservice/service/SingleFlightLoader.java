@@ -0,0 +1,104 @@
+package com.example.cacheservice.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent loads of the same key into a single call.
+ * <p>
+ * The first caller for a key runs the loader; callers that arrive while it is running wait
+ * for that result (or exception) instead of issuing their own query. Blocking and
+ * asynchronous callers share the same flights.
+ */
+public class SingleFlightLoader<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    public V load(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.call();
+            flight.complete(value);
+            return value;
+        } catch (Exception | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Runs the loader on {@code executor} unless a load for the key is already in flight, in which
+     * case the returned future follows that load. The calling thread never blocks.
+     */
+    public CompletableFuture<V> loadAsync(K key, Callable<V> loader, Executor executor) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.increment();
+            // A copy, so a caller cancelling its future cannot fail the others
+            return existing.copy();
+        }
+
+        loads.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    flight.complete(loader.call());
+                } catch (Exception | Error ex) {
+                    flight.completeExceptionally(ex);
+                } finally {
+                    inFlight.remove(key, flight);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(ex);
+        }
+        return flight.copy();
+    }
+
+    /** Number of loads that actually ran. */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /** Number of callers that piggybacked on a load already in flight. */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.cacheservice.service;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded write-behind queue that persists entities in batches through
+ * {@link MyEntityRepository#saveAll}.
+ * <p>
+ * Writes for an id that is already queued are merged, so only the latest value is saved.
+ * When the queue is full, writers wait up to {@code offerTimeoutMillis} for space and then
+ * fall back to saving on their own thread, which throttles producers to the speed of the DB.
+ */
+public class WriteBehindWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindWriter.class);
+
+    private final LastWriteWinsSaver saver;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+
+    private final ConcurrentHashMap<Long, MyEntity> pending = new ConcurrentHashMap<>();
+    // Taken off the queue but not yet saved; still visible to readers
+    private final ConcurrentHashMap<Long, MyEntity> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> order = new ConcurrentLinkedQueue<>();
+    private final Semaphore capacity;
+    private final Semaphore wakeup = new Semaphore(0);
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public WriteBehindWriter(MyEntityRepository repository, CacheProperties.WriteBehind settings) {
+        this.saver = new LastWriteWinsSaver(repository);
+        this.flushSize = Math.max(1, settings.getFlushSize());
+        this.flushIntervalMillis = settings.getFlushIntervalMillis();
+        this.offerTimeoutMillis = settings.getOfferTimeoutMillis();
+        this.capacity = new Semaphore(settings.getQueueCapacity());
+
+        this.flusher = new Thread(this::runFlusher, "cache-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the entity for persistence. Its row must already exist, since saving an id the table does
+     * not have inserts the row under a newly generated one.
+     */
+    public void enqueue(MyEntity entity) {
+        Long id = entity.getId();
+        if (pending.computeIfPresent(id, (k, v) -> entity) != null) {
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired || !running) {
+            if (acquired) {
+                capacity.release();
+            }
+            logger.warn("Write-behind queue full, saving entity with id {} synchronously", id);
+            saver.save(entity);
+            return;
+        }
+
+        if (pending.put(id, entity) == null) {
+            order.add(id);
+            if (pending.size() >= flushSize) {
+                wakeup.release();
+            }
+        } else {
+            // Another writer queued this id in the meantime; our value was merged into its slot
+            capacity.release();
+        }
+    }
+
+    /**
+     * Returns the queued, not yet persisted value for the id, or {@code null}.
+     */
+    public MyEntity getPending(Long id) {
+        MyEntity entity = pending.get(id);
+        return entity != null ? entity : inFlight.get(id);
+    }
+
+    /**
+     * Drops any queued write for the id and waits for an in-flight batch to finish,
+     * so a subsequent delete cannot be overwritten by a late flush.
+     */
+    public void cancel(Long id) {
+        if (pending.remove(id) != null) {
+            capacity.release();
+        }
+        awaitInFlight();
+    }
+
+    /**
+     * Drops every queued write and waits for an in-flight batch to finish.
+     */
+    public void cancelAll() {
+        cancelAll(pending.keySet());
+    }
+
+    /**
+     * Drops the queued writes for the ids and waits once for an in-flight batch to finish.
+     */
+    public void cancelAll(Collection<Long> ids) {
+        for (Long id : ids) {
+            if (pending.remove(id) != null) {
+                capacity.release();
+            }
+        }
+        awaitInFlight();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Persists everything queued so far on the calling thread.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<MyEntity> batch = new ArrayList<>(Math.min(flushSize, Math.max(1, pending.size())));
+            Long id;
+            while ((id = order.poll()) != null) {
+                MyEntity entity = pending.remove(id);
+                if (entity == null) {
+                    continue;
+                }
+                inFlight.put(id, entity);
+                capacity.release();
+                batch.add(entity);
+                if (batch.size() >= flushSize) {
+                    saveBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                saveBatch(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background flusher and drains the queue.
+     */
+    public void close() {
+        running = false;
+        wakeup.release();
+        try {
+            flusher.join(Math.max(1000, flushIntervalMillis * 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("Write-behind queue drained on shutdown.");
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                wakeup.tryAcquire(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                wakeup.drainPermits();
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                logger.error("Write-behind flush failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void saveBatch(List<MyEntity> batch) {
+        try {
+            persist(batch);
+        } finally {
+            for (MyEntity entity : batch) {
+                inFlight.remove(entity.getId(), entity);
+            }
+        }
+    }
+
+    private void persist(List<MyEntity> batch) {
+        try {
+            saver.saveAll(batch);
+            logger.debug("Write-behind flushed {} entities", batch.size());
+        } catch (Exception ex) {
+            logger.error("Batch save of {} entities failed, retrying individually: {}", batch.size(), ex.getMessage());
+            for (MyEntity entity : batch) {
+                try {
+                    saver.save(entity);
+                } catch (Exception e) {
+                    logger.error("Failed to save entity with id {} to DB: {}", entity.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void awaitInFlight() {
+        flushLock.lock();
+        flushLock.unlock();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.cacheservice.service;
+
+import java.util.Collection;
+
+/**
+ * Hears about the writes made through a {@link CacheServiceImpl} once they are applied, so that other
+ * caches over the same table can drop their copies. Invalidations are not writes and are not reported.
+ */
+public interface WriteListener {
+
+    /** The entities with these ids were saved or deleted. */
+    void written(Collection<Long> ids);
+
+    /** Every entity was deleted. */
+    void allRemoved();
+}
@@ -0,0 +1,97 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.service.AdaptiveCapacity;
+import com.example.cacheservice.service.AdaptiveCapacity.Decision;
+import com.example.cacheservice.service.CacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveCapacityTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<CacheEntry> persisted = new ArrayList<>();
+    private ScriptedHeap heap;
+    private ConcurrentCacheStore store;
+    private AdaptiveCapacity adaptive;
+
+    @BeforeEach
+    void setup() {
+        CacheProperties.Adaptive settings = new CacheProperties.Adaptive();
+        settings.setMinPercent(50);
+        settings.setMaxPercent(100);
+        settings.setStepPercent(10);
+        store = new ConcurrentCacheStore(100, 60000L);
+        for (long id = 0; id < 100; id++) {
+            store.put(new MyEntity(id, "entity-" + id));
+        }
+        heap = new ScriptedHeap();
+        adaptive = new AdaptiveCapacity(store, 100, settings, heap, new CacheMetrics(registry, "entity"),
+                persisted::addAll);
+    }
+
+    @Test
+    void testShrinksStepByStepUnderHeapPressureDownToMinimum() {
+        heap.occupancy = 0.9;
+        assertEquals(Decision.SHRINK, adaptive.adjust());
+        assertEquals(90, store.getMaximumWeight());
+        assertEquals(90, store.size());
+        // The coldest entries went to the sink to be persisted
+        assertEquals(10, persisted.size());
+        assertEquals(0L, persisted.get(0).getKey());
+
+        for (int i = 0; i < 10; i++) {
+            adaptive.adjust();
+        }
+        assertEquals(50, store.getMaximumWeight());
+        assertEquals(Decision.HOLD, adaptive.adjust());
+        assertEquals(5, registry.get("cache.capacity.adjustments").tag("decision", "shrink").counter().count());
+    }
+
+    @Test
+    void testGcTimeAloneShrinksAndQuietHeapGrowsBackWhenFull() throws InterruptedException {
+        heap.occupancy = 0.3;
+        Thread.sleep(20);
+        heap.gcMillis = 1000;
+        assertEquals(Decision.SHRINK, adaptive.adjust());
+        assertEquals(90, store.getMaximumWeight());
+
+        assertEquals(Decision.GROW, adaptive.adjust());
+        assertEquals(100, store.getMaximumWeight());
+        // Already at the upper bound
+        assertEquals(Decision.HOLD, adaptive.adjust());
+
+        // Not full, so there is nothing to gain from more room
+        store.setMaximumWeight(90);
+        store.removeAll(List.of(20L, 21L, 22L, 23L, 24L, 25L, 26L, 27L, 28L, 29L, 30L));
+        assertEquals(Decision.HOLD, adaptive.adjust());
+        assertEquals(1, registry.get("cache.capacity.adjustments").tag("decision", "grow").counter().count());
+    }
+
+    private static final class ScriptedHeap implements AdaptiveCapacity.HeapPressure {
+
+        double occupancy = -1;
+        long gcMillis;
+
+        @Override
+        public double occupancyAfterGc() {
+            return occupancy;
+        }
+
+        @Override
+        public long takeGcMillis() {
+            long taken = gcMillis;
+            gcMillis = 0;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.protocol.BinaryCacheClient;
+import com.example.cacheservice.protocol.BinaryProtocolServer;
+import com.example.cacheservice.repository.MyEntityRepository;
+import com.example.cacheservice.service.CacheServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BinaryProtocolTest {
+
+    @Mock
+    private MyEntityRepository repository;
+
+    private CacheServiceImpl cacheService;
+    private BinaryProtocolServer server;
+    private BinaryCacheClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        cacheService = new CacheServiceImpl(repository, 2000, 60000L);
+        CacheProperties.BinaryProtocol settings = new CacheProperties.BinaryProtocol();
+        settings.setBindAddress("127.0.0.1");
+        settings.setPort(0);
+        settings.setMaxPipelinedRequests(16);
+        server = new BinaryProtocolServer(cacheService, settings);
+        client = new BinaryCacheClient("127.0.0.1", server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        server.close();
+        cacheService.onDestroy();
+    }
+
+    @Test
+    void testPutGetDeleteRoundTrip() throws Exception {
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> {
+            MyEntity saved = call.getArgument(0);
+            return new MyEntity(saved.getId() == null ? 100L : saved.getId(), saved.getName());
+        });
+        lenient().when(repository.findAllById(any())).thenReturn(List.of());
+        lenient().when(repository.existsById(100L)).thenReturn(true);
+
+        MyEntity stored = await(client.put(new MyEntity(null, "héllo")));
+        assertEquals(100L, stored.getId());
+        assertEquals("héllo", await(client.get(100L)).getName());
+        assertNull(await(client.get(7L)));
+
+        await(client.delete(100L));
+        verify(repository).deleteById(100L);
+        assertNull(await(client.get(100L)));
+    }
+
+    @Test
+    void testPipelinedRequestsAnswerInOrder() throws Exception {
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+        // Misses go through the I/O executor, so their answers complete out of order on the server
+        lenient().when(repository.findAllById(any())).thenAnswer(call -> {
+            List<MyEntity> found = new ArrayList<>();
+            for (Long id : call.<Iterable<Long>>getArgument(0)) {
+                if (id % 2 == 0) {
+                    found.add(new MyEntity(id, "db-" + id));
+                }
+            }
+            return found;
+        });
+        for (long id = 0; id < 500; id++) {
+            await(client.put(new MyEntity(id, "cached-" + id)));
+        }
+
+        // Far more than the per-connection limit, so the server has to pause and resume reading
+        List<CompletableFuture<MyEntity>> calls = new ArrayList<>();
+        for (long id = 0; id < 1000; id++) {
+            calls.add(client.get(id));
+        }
+        for (int id = 0; id < 1000; id++) {
+            MyEntity entity = await(calls.get(id));
+            String expected = id < 500 ? "cached-" + id : id % 2 == 0 ? "db-" + id : null;
+            assertEquals(expected, entity == null ? null : entity.getName(), "id " + id);
+        }
+
+        Map<Long, MyEntity> found = await(client.getAll(List.of(1L, 600L, 601L)));
+        assertEquals(List.of(1L, 600L), new ArrayList<>(found.keySet()));
+    }
+
+    @Test
+    void testServerErrorsFailOnlyThatCall() throws Exception {
+        when(repository.save(any(MyEntity.class))).thenThrow(new IllegalStateException("disk full"));
+        when(repository.findAllById(List.of(1L))).thenReturn(List.of(new MyEntity(1L, "one")));
+
+        CompletableFuture<MyEntity> failed = client.put(new MyEntity(null, "x"));
+        CompletableFuture<MyEntity> next = client.get(1L);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CacheException.class, ex.getCause());
+        assertEquals("one", await(next).getName());
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+import com.example.cacheservice.service.CachePreloader;
+import com.example.cacheservice.service.CacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CachePreloaderTest {
+
+    @Mock
+    private MyEntityRepository repository;
+
+    @Test
+    void testRangeIsPagedAndStopsAtBudget() throws Exception {
+        stubTable(1, 100);
+        CacheProperties.Preload settings = new CacheProperties.Preload();
+        settings.setSource(CacheProperties.Preload.Source.ID_RANGE);
+        settings.setFromId(1);
+        settings.setToId(100);
+        settings.setPageSize(10);
+        settings.setParallelism(3);
+
+        List<MyEntity> sink = Collections.synchronizedList(new ArrayList<>());
+        int loaded = new CachePreloader(repository, settings).preload(25, sink::addAll);
+
+        assertEquals(25, loaded);
+        assertEquals(25, sink.size());
+        assertEquals(25, sink.stream().map(MyEntity::getId).distinct().count());
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void testHotKeysFileIsLoadedInBatches(@TempDir Path dir) throws Exception {
+        Path hotKeys = dir.resolve("hot-keys.txt");
+        Files.write(hotKeys, List.of("# hottest first", "7", "3", "", "7", "42"));
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<MyEntity> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (id != 42L) {
+                    found.add(new MyEntity(id, "entity-" + id));
+                }
+            }
+            return found;
+        });
+        CacheProperties.Preload settings = new CacheProperties.Preload();
+        settings.setSource(CacheProperties.Preload.Source.HOT_KEYS);
+        settings.setHotKeysFile(hotKeys.toString());
+        settings.setPageSize(2);
+
+        List<MyEntity> sink = Collections.synchronizedList(new ArrayList<>());
+        assertEquals(2, new CachePreloader(repository, settings).preload(10, sink::addAll));
+        verify(repository, times(2)).findAllById(anyIterable());
+    }
+
+    @Test
+    void testServiceIsWarmBeforeFirstRequest() throws Exception {
+        stubTable(1, 20);
+        CacheProperties properties = CacheProperties.of(5, 60000L);
+        properties.getPreload().setEnabled(true);
+        CacheServiceImpl service = new CacheServiceImpl(repository, properties, new SimpleMeterRegistry());
+
+        assertEquals(5, service.stats().getSize());
+        verify(repository, never()).findById(anyLong());
+        service.onDestroy();
+    }
+
+    private void stubTable(long first, long last) {
+        lenient().when(repository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(new MyEntity(first, null)));
+        lenient().when(repository.findFirstByOrderByIdDesc()).thenReturn(Optional.of(new MyEntity(last, null)));
+        when(repository.findByIdBetweenOrderByIdAsc(anyLong(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long from = Math.max(first, invocation.<Long>getArgument(0));
+                    long to = Math.min(last, invocation.<Long>getArgument(1));
+                    int limit = invocation.<Pageable>getArgument(2).getPageSize();
+                    return LongStream.rangeClosed(from, to).limit(limit)
+                            .mapToObj(id -> new MyEntity(id, "entity-" + id))
+                            .collect(Collectors.toList());
+                });
+    }
+}
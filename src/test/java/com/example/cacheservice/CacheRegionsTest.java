@@ -0,0 +1,135 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.Expiry;
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.exception.ResourceNotFoundException;
+import com.example.cacheservice.repository.MyEntityRepository;
+import com.example.cacheservice.service.CacheRegions;
+import com.example.cacheservice.service.CacheService;
+import com.example.cacheservice.service.CacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheRegionsTest {
+
+    @Mock
+    private MyEntityRepository repository;
+
+    @Mock
+    private ObjectProvider<Expiry> customExpiry;
+
+    private CacheServiceImpl defaultCache;
+    private CacheRegions regions;
+
+    @BeforeEach
+    void setup() {
+        CacheProperties properties = CacheProperties.of(5, 60000L);
+        CacheProperties.Region scan = new CacheProperties.Region();
+        scan.setMaxSize(2);
+        properties.getRegions().put("scan", scan);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        defaultCache = new CacheServiceImpl(repository, properties, registry);
+        regions = new CacheRegions(defaultCache, defaultCache, defaultCache, repository, properties, registry,
+                customExpiry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        regions.onDestroy();
+        defaultCache.onDestroy();
+    }
+
+    @Test
+    void testRegionTrafficDoesNotEvictOtherRegions() throws CacheException {
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+        regions.service(CacheRegions.DEFAULT).add(new MyEntity(1L, "latency-critical"));
+
+        CacheService scan = regions.service("scan");
+        for (long id = 10; id < 20; id++) {
+            scan.add(new MyEntity(id, "scanned"));
+        }
+
+        assertEquals(2, scan.stats().getSize());
+        assertEquals("latency-critical", regions.service(null).get(new MyEntity(1L, null)).getName());
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void testWriteThroughOneRegionInvalidatesTheOthers() throws CacheException {
+        when(repository.findById(5L)).thenReturn(Optional.of(new MyEntity(5L, "old")))
+                .thenReturn(Optional.of(new MyEntity(5L, "new")));
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+        CacheService scan = regions.service("scan");
+        assertEquals("old", scan.get(new MyEntity(5L, null)).getName());
+
+        regions.service(null).add(new MyEntity(5L, "new"));
+
+        assertEquals("new", scan.get(new MyEntity(5L, null)).getName());
+        verify(repository, times(2)).findById(5L);
+    }
+
+    @Test
+    void testRegionsReadAndEvictThroughTheSharedWriteBehindQueue() throws CacheException {
+        Map<Long, MyEntity> db = new ConcurrentHashMap<>(Map.of(5L, new MyEntity(5L, "old")));
+        lenient().when(repository.findById(any())).thenAnswer(call -> Optional.ofNullable(db.get(call.getArgument(0))));
+        when(repository.existsById(any())).thenAnswer(call -> db.containsKey(call.getArgument(0)));
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> {
+            MyEntity saved = call.getArgument(0);
+            db.put(saved.getId(), saved);
+            return saved;
+        });
+        when(repository.saveAll(anyList())).thenAnswer(call -> {
+            List<MyEntity> saved = call.<List<MyEntity>>getArgument(0);
+            saved.forEach(entity -> db.put(entity.getId(), entity));
+            return saved;
+        });
+        CacheProperties properties = CacheProperties.of(5, 60000L);
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setFlushIntervalMillis(60000);
+        CacheProperties.Region scan = new CacheProperties.Region();
+        scan.setMaxSize(1);
+        properties.getRegions().put("scan", scan);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheServiceImpl writer = new CacheServiceImpl(repository, properties, registry);
+        CacheRegions writeBehindRegions = new CacheRegions(writer, writer, writer, repository, properties, registry,
+                customExpiry);
+        try {
+            writer.add(new MyEntity(5L, "new"));
+            CacheService scanRegion = writeBehindRegions.service("scan");
+            assertEquals("new", scanRegion.get(new MyEntity(5L, null)).getName());
+            // Evicts id 5 from the scan region; its copy is the queued write, so nothing is written back
+            scanRegion.add(new MyEntity(6L, "other"));
+        } finally {
+            writeBehindRegions.onDestroy();
+            writer.onDestroy();
+        }
+
+        verify(repository, never()).findById(5L);
+        assertEquals("new", db.get(5L).getName());
+        assertEquals("other", db.get(6L).getName());
+    }
+
+    @Test
+    void testUnknownRegionIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> regions.service("nope"));
+        assertEquals(1, regions.names().size());
+    }
+}
@@ -1,18 +1,33 @@
 package com.example.cacheservice;
 
+import com.example.cacheservice.config.CacheProperties;
 import com.example.cacheservice.entity.MyEntity;
 import com.example.cacheservice.exception.CacheException;
+import com.example.cacheservice.exception.VersionConflictException;
 import com.example.cacheservice.repository.MyEntityRepository;
 import com.example.cacheservice.service.CacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +54,11 @@ public class CacheServiceImplTest {
         entityWithId.setName("WithID");
     }
 
+    @AfterEach
+    void tearDown() {
+        cacheService.onDestroy();
+    }
+
     @Test
     void testAddEntityWithoutId() throws CacheException {
         MyEntity savedEntity = new MyEntity();
@@ -160,4 +180,277 @@ public class CacheServiceImplTest {
     void testAddNullEntityThrowsException() {
         assertThrows(CacheException.class, () -> cacheService.add(null));
     }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(entityWithId);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<MyEntity>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(pool.submit(() -> cacheService.get(entityWithId)));
+        }
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cacheService.stats().getCollapsedLoadCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(3, cacheService.stats().getCollapsedLoadCount());
+        } finally {
+            release.countDown();
+        }
+
+        for (Future<MyEntity> result : results) {
+            assertEquals(1L, result.get(5, TimeUnit.SECONDS).getId());
+        }
+        pool.shutdown();
+        verify(repository, times(1)).findById(1L);
+        assertEquals(1, cacheService.stats().getLoadCount());
+    }
+
+    @Test
+    void testGetAllLoadsMissesInOneQuery() throws CacheException {
+        when(repository.save(entityWithId)).thenReturn(entityWithId);
+        cacheService.add(entityWithId);
+        MyEntity two = new MyEntity(2L, "two");
+        when(repository.findAllById(List.of(2L, 3L))).thenReturn(List.of(two));
+
+        Map<Long, MyEntity> result = cacheService.getAll(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, 2L), List.copyOf(result.keySet()));
+        verify(repository, times(1)).findAllById(any());
+        verify(repository, never()).findById(any());
+        assertSame(two, cacheService.get(two));
+    }
+
+    @Test
+    void testAddAllAndRemoveAllByIdUseBatchCalls() throws CacheException {
+        List<MyEntity> entities = List.of(new MyEntity(1L, "a"), new MyEntity(2L, "b"));
+        when(repository.saveAll(entities)).thenReturn(entities);
+
+        assertEquals(2, cacheService.addAll(entities).size());
+        cacheService.removeAllById(List.of(1L, 2L));
+
+        verify(repository).deleteAllByIdInBatch(any());
+        assertEquals(0, cacheService.stats().getSize());
+    }
+
+    @Test
+    void testMissingIdIsNegativelyCachedUntilAdded() throws CacheException {
+        MyEntity missing = new MyEntity(42L, "missing");
+        when(repository.findById(42L)).thenReturn(Optional.empty());
+
+        assertThrows(CacheException.class, () -> cacheService.get(missing));
+        assertThrows(CacheException.class, () -> cacheService.get(missing));
+        verify(repository, times(1)).findById(42L);
+        assertEquals(1, cacheService.stats().getNegativeHitCount());
+
+        when(repository.save(missing)).thenReturn(missing);
+        cacheService.add(missing);
+        assertEquals(0, cacheService.stats().getNegativeSize());
+        assertEquals("missing", cacheService.get(missing).getName());
+        assertEquals(1, cacheService.stats().getNegativeHitCount());
+    }
+
+    @Test
+    void testStaleEntryIsServedAndRefreshedInBackground() throws Exception {
+        CacheProperties properties = CacheProperties.of(5, 60000L);
+        properties.getRefresh().setAfterWriteMillis(1);
+        CacheServiceImpl refreshing = new CacheServiceImpl(repository, properties, new SimpleMeterRegistry());
+        when(repository.save(entityWithId)).thenReturn(entityWithId);
+        when(repository.findById(1L)).thenReturn(Optional.of(new MyEntity(1L, "Reloaded")));
+
+        refreshing.add(entityWithId);
+        Thread.sleep(5);
+        assertEquals("WithID", refreshing.get(entityWithId).getName());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (refreshing.stats().getRefreshCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("Reloaded", refreshing.get(entityWithId).getName());
+        refreshing.onDestroy();
+    }
+
+    @Test
+    void testHitsMissesAndLoadsArePublishedToRegistry() throws CacheException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheServiceImpl metered = new CacheServiceImpl(repository, CacheProperties.of(5, 60000L), registry);
+        when(repository.findById(1L)).thenReturn(Optional.of(entityWithId));
+
+        metered.get(entityWithId);
+        metered.get(entityWithId);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(1.0, registry.get("cache.loads").tag("result", "success").counter().count());
+        assertEquals(2, registry.get("cache.get.latency").timer().count());
+        assertEquals(1.0, registry.get("cache.size").gauge().value());
+        assertEquals(1, metered.stats().getHitCount());
+        metered.onDestroy();
+    }
+
+    @Test
+    void testAsyncHitCompletesInlineAndMissLoadsOffThread() throws Exception {
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            assertNotEquals("main", Thread.currentThread().getName());
+            return Optional.of(entityWithId);
+        });
+
+        CompletableFuture<MyEntity> miss = cacheService.getAsync(1L);
+        assertEquals("WithID", miss.get(5, TimeUnit.SECONDS).getName());
+
+        CompletableFuture<MyEntity> hit = cacheService.getAsync(1L);
+        assertTrue(hit.isDone());
+        assertEquals("WithID", hit.getNow(null).getName());
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testAsyncGetOfMissingIdFailsWithCacheException() {
+        when(repository.findById(999L)).thenReturn(Optional.empty());
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> cacheService.getAsync(999L).get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof CacheException);
+    }
+
+    @Test
+    void testReplaceOnlyAppliesAtExpectedVersion() throws CacheException {
+        MyEntity loaded = new MyEntity(1L, "v3", 3L);
+        when(repository.findById(1L)).thenReturn(Optional.of(loaded));
+        when(repository.compareAndSet(1L, "v4", 3L)).thenReturn(1);
+        when(repository.compareAndSet(1L, "stale", 3L)).thenReturn(0);
+        assertEquals(3L, cacheService.get(loaded).getVersion());
+
+        MyEntity stored = cacheService.replace(new MyEntity(1L, "v4"), 3L);
+        assertEquals(4L, stored.getVersion());
+        assertEquals("v4", cacheService.get(loaded).getName());
+
+        assertThrows(VersionConflictException.class, () -> cacheService.replace(new MyEntity(1L, "stale"), 3L));
+        // The conflicting write dropped the cached copy, so the next read goes back to the DB
+        cacheService.get(loaded);
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testBlindWriteReplacesWhateverVersionIsStored() throws CacheException {
+        when(repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        when(repository.save(entityWithId)).thenAnswer(call -> {
+            MyEntity saved = call.getArgument(0);
+            return new MyEntity(saved.getId(), saved.getName(), saved.getVersion() + 1);
+        });
+
+        cacheService.add(entityWithId);
+
+        assertEquals(7L, entityWithId.getVersion());
+        assertEquals(8L, cacheService.get(entityWithId).getVersion());
+    }
+
+    @Test
+    void testEvictedCopyDoesNotOverwriteANewerRow() throws CacheException {
+        when(repository.findById(1L)).thenReturn(Optional.of(new MyEntity(1L, "loaded", 3L)));
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+        cacheService.get(entityWithId);
+        // Someone else updates the row behind the cache's back
+        lenient().when(repository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        for (long i = 2; i <= 6; i++) {
+            cacheService.add(new MyEntity(i, "Entity " + i));
+        }
+
+        verify(repository, never()).save(argThat(entity -> entity.getId() == 1L));
+    }
+
+    @Test
+    void testPerEntryTtlSurvivesDemotionToOffHeap() throws Exception {
+        CacheProperties properties = CacheProperties.of(1, 60000L);
+        properties.getOffHeap().setEnabled(true);
+        CacheServiceImpl tiered = new CacheServiceImpl(repository, properties, new SimpleMeterRegistry());
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+        when(repository.findById(1L)).thenReturn(Optional.empty());
+        try {
+            tiered.add(new MyEntity(1L, "short-lived"), 50L);
+            // Evicts id 1 from the heap into the off-heap tier
+            tiered.add(new MyEntity(2L, "other"));
+
+            Thread.sleep(100);
+            assertThrows(CacheException.class, () -> tiered.get(new MyEntity(1L, null)));
+        } finally {
+            tiered.onDestroy();
+        }
+        verify(repository).findById(1L);
+    }
+
+    @Test
+    void testWriteBehindOnlyDefersWritesOfExistingRows() throws CacheException {
+        CacheProperties properties = CacheProperties.of(5, 60000L);
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setFlushIntervalMillis(60000);
+        CacheServiceImpl deferring = new CacheServiceImpl(repository, properties, new SimpleMeterRegistry());
+        when(repository.existsById(1L)).thenReturn(true);
+        when(repository.existsById(7L)).thenReturn(false);
+        // Like a merge of an absent id, which inserts the row under a generated id
+        when(repository.save(any(MyEntity.class)))
+                .thenAnswer(call -> new MyEntity(8L, call.<MyEntity>getArgument(0).getName()));
+        try {
+            deferring.add(entityWithId);
+            deferring.add(new MyEntity(7L, "new row"));
+
+            verify(repository, times(1)).save(any(MyEntity.class));
+            assertEquals("new row", deferring.get(new MyEntity(8L, null)).getName());
+            assertEquals("WithID", deferring.get(entityWithId).getName());
+            assertThrows(CacheException.class, () -> deferring.get(new MyEntity(7L, null)));
+        } finally {
+            deferring.onDestroy();
+        }
+        verify(repository).saveAll(List.of(entityWithId));
+    }
+
+    @Test
+    void testPerEntryTtlOverridesTheConfiguredExpiration() throws Exception {
+        when(repository.save(entityWithId)).thenReturn(entityWithId);
+        when(repository.findById(1L)).thenReturn(Optional.of(new MyEntity(1L, "Reloaded")));
+
+        cacheService.add(entityWithId, 1L);
+        Thread.sleep(20);
+
+        assertEquals("Reloaded", cacheService.get(entityWithId).getName());
+        assertThrows(CacheException.class, () -> cacheService.add(entityWithId, 0L));
+    }
+
+    @Test
+    void testGetByNameIsServedFromIndexAndFollowsWrites() throws CacheException {
+        when(repository.findByName("n")).thenReturn(List.of(new MyEntity(1L, "n"), new MyEntity(2L, "n")));
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+
+        assertEquals(2, cacheService.getByName("n").size());
+        assertEquals(2, cacheService.getByName("n").size());
+
+        // A new entity joins the name, a renamed one leaves it, and neither needs another query
+        cacheService.add(new MyEntity(3L, "n"));
+        cacheService.add(new MyEntity(2L, "m"));
+        List<Long> ids = new ArrayList<>();
+        cacheService.getByName("n").forEach(entity -> ids.add(entity.getId()));
+        ids.sort(null);
+        assertEquals(List.of(1L, 3L), ids);
+        verify(repository, times(1)).findByName("n");
+    }
+
+    @Test
+    void testEvictingANamedEntityDropsTheName() throws CacheException {
+        when(repository.findByName("n")).thenReturn(List.of(new MyEntity(1L, "n"), new MyEntity(2L, "n")));
+        when(repository.save(any(MyEntity.class))).thenAnswer(call -> call.getArgument(0));
+
+        cacheService.getByName("n");
+        // The cache holds five, so these push out the least recently used named entity
+        for (long id = 10; id < 14; id++) {
+            cacheService.add(new MyEntity(id, "other"));
+        }
+        cacheService.getByName("n");
+        verify(repository, times(2)).findByName("n");
+    }
 }
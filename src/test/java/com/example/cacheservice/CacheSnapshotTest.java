@@ -0,0 +1,79 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.CacheSnapshot;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.entity.MyEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheSnapshotTest {
+
+    @Test
+    void testRoundTripKeepsEntriesAndWriteTimes(@TempDir Path dir) throws IOException {
+        ConcurrentCacheStore original = new ConcurrentCacheStore(100, 60000L);
+        for (long id = 1; id <= 50; id++) {
+            original.put(new MyEntity(id, id % 7 == 0 ? null : "entity-" + id));
+        }
+        original.put(new MyEntity(51L, "short-lived"), 30000L);
+        long writtenAt = original.getEntryIfPresent(10L).getWriteTime();
+        long deadline = original.getEntryIfPresent(51L).getDeadline();
+        Path file = dir.resolve("cache.snapshot");
+
+        assertEquals(51, CacheSnapshot.write(original, file));
+
+        ConcurrentCacheStore restored = new ConcurrentCacheStore(100, 60000L);
+        assertEquals(51, CacheSnapshot.load(restored, file, 4));
+        assertEquals(51, restored.size());
+        assertEquals("entity-1", restored.getIfPresent(1L).getName());
+        assertNull(restored.getIfPresent(14L).getName());
+        assertEquals(writtenAt, restored.getEntryIfPresent(10L).getWriteTime());
+        // A per-entry TTL survives the restart instead of falling back to the configured expiration
+        CacheEntry shortLived = restored.getEntryIfPresent(51L);
+        assertEquals(30000L, shortLived.getTtlMillis());
+        assertTrue(shortLived.getDeadline() >= deadline);
+    }
+
+    @Test
+    void testRestoreKeepsMostRecentlyUsedWhenSnapshotIsLarger(@TempDir Path dir) throws Exception {
+        ConcurrentCacheStore original = new ConcurrentCacheStore(10, 60000L);
+        for (long id = 1; id <= 10; id++) {
+            original.put(new MyEntity(id, "entity-" + id));
+        }
+        Thread.sleep(5);
+        original.getIfPresent(1L);
+        Path file = dir.resolve("cache.snapshot");
+        CacheSnapshot.write(original, file);
+
+        ConcurrentCacheStore smaller = new ConcurrentCacheStore(3, 60000L);
+        assertEquals(3, CacheSnapshot.load(smaller, file, 2));
+        assertNotNull(smaller.getIfPresent(1L));
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejectedWithoutTouchingStore(@TempDir Path dir) throws IOException {
+        ConcurrentCacheStore original = new ConcurrentCacheStore(10, 60000L);
+        original.putAll(List.of(new MyEntity(1L, "one"), new MyEntity(2L, "two")));
+        Path file = dir.resolve("cache.snapshot");
+        CacheSnapshot.write(original, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        ConcurrentCacheStore restored = new ConcurrentCacheStore(10, 60000L);
+        assertThrows(IOException.class, () -> CacheSnapshot.load(restored, file, 2));
+        assertEquals(0, restored.size());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> CacheSnapshot.load(restored, file, 2));
+        assertEquals(0, CacheSnapshot.load(restored, dir.resolve("missing.snapshot"), 2));
+    }
+}
@@ -1,13 +1,36 @@
 package com.example.cacheservice;
 
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 @SpringBootTest
 class CacheserviceApplicationTests {
 
+	@Autowired
+	private MyEntityRepository repository;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void streamsRowsInIdRangeByCursor() {
+		List<MyEntity> saved = repository.saveAll(List.of(new MyEntity(null, "a"), new MyEntity(null, "b"),
+				new MyEntity(null, "c")));
+		long first = saved.get(0).getId();
+
+		List<String> names = new ArrayList<>();
+		repository.forEachByIdBetween(first + 1, first + 2, entity -> names.add(entity.getName()));
+		assertEquals(List.of("b", "c"), names);
+		repository.deleteAll(saved);
+	}
+
 }
@@ -0,0 +1,152 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.service.CacheServiceImpl;
+import com.example.cacheservice.service.ClusteredCacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two members on localhost sharing one in-memory database.
+ */
+public class ClusterModeTest {
+
+    private static final long NEAR_CACHE_TTL_MILLIS = 1000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        int portA = freePort();
+        int portB = freePort();
+        String members = "--cache.cluster.members=http://localhost:" + portA + ",http://localhost:" + portB;
+        nodeA = start(portA, members);
+        nodeB = start(portB, members);
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void testReadsGoToOwnerAndWritesInvalidateOtherMembers() throws Exception {
+        ClusteredCacheService a = nodeA.getBean(ClusteredCacheService.class);
+        ClusteredCacheService b = nodeB.getBean(ClusteredCacheService.class);
+
+        Long id = addOwnedBy(a, b, "v1").getId();
+        long remoteGets = b.stats().getRemoteGetCount();
+
+        assertEquals("v1", b.get(new MyEntity(id, null)).getName());
+        assertEquals(remoteGets + 1, b.stats().getRemoteGetCount());
+        // Served from the near-cache; its size is no measure, as other tests' entries expire meanwhile
+        assertEquals("v1", b.get(new MyEntity(id, null)).getName());
+        assertEquals(remoteGets + 1, b.stats().getRemoteGetCount());
+
+        long received = b.stats().getInvalidationsReceived();
+        a.add(new MyEntity(id, "v2"));
+        awaitInvalidations(b, received + 1);
+        assertEquals("v2", b.get(new MyEntity(id, null)).getName());
+        assertEquals(remoteGets + 2, b.stats().getRemoteGetCount());
+    }
+
+    @Test
+    void testNearCacheEntryExpiresWhileStillBeingRead() throws Exception {
+        ClusteredCacheService a = nodeA.getBean(ClusteredCacheService.class);
+        ClusteredCacheService b = nodeB.getBean(ClusteredCacheService.class);
+        Long id = addOwnedBy(a, b, "v1").getId();
+        assertEquals("v1", b.get(new MyEntity(id, null)).getName());
+
+        // Writing through the owner's local cache broadcasts nothing, like an invalidation lost on the way
+        nodeA.getBean(CacheServiceImpl.class).add(new MyEntity(id, "v2"));
+
+        long deadline = System.currentTimeMillis() + NEAR_CACHE_TTL_MILLIS * 5;
+        String seen = b.get(new MyEntity(id, null)).getName();
+        while (!"v2".equals(seen) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(NEAR_CACHE_TTL_MILLIS / 10);
+            seen = b.get(new MyEntity(id, null)).getName();
+        }
+        assertEquals("v2", seen);
+    }
+
+    @Test
+    void testPerEntryTtlAppliesToTheNearCacheOfANonOwner() throws Exception {
+        ClusteredCacheService a = nodeA.getBean(ClusteredCacheService.class);
+        ClusteredCacheService b = nodeB.getBean(ClusteredCacheService.class);
+        Long id = addOwnedBy(b, a, "v1").getId();
+
+        a.add(new MyEntity(id, "short-lived"), NEAR_CACHE_TTL_MILLIS / 5);
+        long remoteGets = a.stats().getRemoteGetCount();
+        assertEquals("short-lived", a.get(new MyEntity(id, null)).getName());
+        assertEquals(remoteGets, a.stats().getRemoteGetCount());
+
+        Thread.sleep(NEAR_CACHE_TTL_MILLIS / 2);
+        assertEquals("short-lived", a.get(new MyEntity(id, null)).getName());
+        assertEquals(remoteGets + 1, a.stats().getRemoteGetCount());
+    }
+
+    @Test
+    void testWriteBehindAndOffHeapAreRejected() {
+        CacheProperties writeBehind = new CacheProperties();
+        writeBehind.getWriteBehind().setEnabled(true);
+        CacheProperties offHeap = new CacheProperties();
+        offHeap.getOffHeap().setEnabled(true);
+        CacheServiceImpl local = nodeA.getBean(CacheServiceImpl.class);
+
+        assertThrows(IllegalStateException.class, () -> new ClusteredCacheService(local, writeBehind, new ObjectMapper()));
+        assertThrows(IllegalStateException.class, () -> new ClusteredCacheService(local, offHeap, new ObjectMapper()));
+    }
+
+    /** Adds entities through {@code owner} until one gets an id it owns, and waits for {@code peer} to hear of them. */
+    private static MyEntity addOwnedBy(ClusteredCacheService owner, ClusteredCacheService peer, String name)
+            throws Exception {
+        long received = peer.stats().getInvalidationsReceived();
+        int writes = 0;
+        while (true) {
+            MyEntity stored = owner.addAsync(new MyEntity(null, name)).get(5, TimeUnit.SECONDS);
+            writes++;
+            if (owner.isOwner(stored.getId())) {
+                awaitInvalidations(peer, received + writes);
+                return stored;
+            }
+        }
+    }
+
+    private static void awaitInvalidations(ClusteredCacheService node, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (node.stats().getInvalidationsReceived() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, node.stats().getInvalidationsReceived());
+    }
+
+    private static ConfigurableApplicationContext start(int port, String members) {
+        return new SpringApplicationBuilder(CacheserviceApplication.class).run(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:clustertest;DB_CLOSE_DELAY=-1;MODE=MYSQL",
+                "--spring.jpa.show-sql=false",
+                "--cache.cluster.enabled=true",
+                "--cache.cluster.self=http://localhost:" + port,
+                "--cache.cluster.nearCacheTtlMillis=" + NEAR_CACHE_TTL_MILLIS,
+                members);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
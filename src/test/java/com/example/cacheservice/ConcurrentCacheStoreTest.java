@@ -0,0 +1,238 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.cache.Expiry;
+import com.example.cacheservice.cache.RemovalListener;
+import com.example.cacheservice.cache.Weigher;
+import com.example.cacheservice.cache.eviction.LruPolicy;
+import com.example.cacheservice.entity.MyEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentCacheStoreTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsedAndReturnsVictims() {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(3, 60000L);
+        store.put(new MyEntity(1L, "one"));
+        store.put(new MyEntity(2L, "two"));
+        store.put(new MyEntity(3L, "three"));
+
+        // Touch 1 so that 2 becomes the eldest; the write drains the read buffer first
+        assertNotNull(store.getIfPresent(1L));
+        List<CacheEntry> evicted = store.put(new MyEntity(4L, "four"));
+
+        assertEquals(1, evicted.size());
+        assertEquals(2L, evicted.get(0).getKey());
+        assertNull(store.getIfPresent(2L));
+        assertNotNull(store.getIfPresent(1L));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testEvictsByWeightAndTracksPeak() {
+        // Weight is the length of the name, so the budget holds ten characters
+        ConcurrentCacheStore store = new ConcurrentCacheStore(new LruPolicy(10),
+                entity -> entity.getName().length(), 60000L);
+        store.put(new MyEntity(1L, "aaaa"));
+        store.put(new MyEntity(2L, "bbbb"));
+        assertEquals(8, store.getWeightedSize());
+
+        List<CacheEntry> evicted = store.put(new MyEntity(3L, "cccccc"));
+        assertEquals(1, evicted.size());
+        assertEquals(1L, evicted.get(0).getKey());
+        assertEquals(10, store.getWeightedSize());
+
+        // An entity heavier than the whole budget is turned away without flushing the rest
+        evicted = store.put(new MyEntity(4L, "dddddddddddd"));
+        assertEquals(4L, evicted.get(0).getKey());
+        assertNull(store.getIfPresent(4L));
+        assertNotNull(store.getIfPresent(3L));
+
+        store.remove(3L);
+        assertEquals(4, store.getWeightedSize());
+        assertEquals(10, store.getPeakWeightedSize());
+    }
+
+    @Test
+    void testRetainedSizeGrowsWithName() {
+        Weigher weigher = Weigher.retainedSize();
+        int empty = weigher.weigh(new MyEntity(1L, null));
+        assertTrue(empty > 100);
+        assertEquals(empty + 24 + 16 + 1000, weigher.weigh(new MyEntity(1L, "x".repeat(1000))));
+        // Non-Latin-1 text takes two bytes per char
+        assertEquals(empty + 24 + 16 + 2000, weigher.weigh(new MyEntity(1L, "\u20ac".repeat(1000))));
+    }
+
+    @Test
+    void testPutIfAbsentDoesNotOverwriteNewerValue() {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(3, 60000L);
+        store.put(new MyEntity(1L, "fresh"));
+        store.putIfAbsent(new MyEntity(1L, "stale"));
+        assertEquals("fresh", store.getIfPresent(1L).getName());
+    }
+
+    @Test
+    void testScanVisitsRangeOnceWithoutTouchingRecency() {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(10_000, 60000L);
+        for (long id = 0; id < 5000; id++) {
+            store.put(new MyEntity(id, "e" + id));
+        }
+        List<Long> seen = new ArrayList<>();
+        store.scan(100L, 199L, 7, entity -> seen.add(entity.getId()));
+        seen.sort(null);
+        List<Long> expected = new ArrayList<>();
+        for (long id = 100; id < 200; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, seen);
+
+        ConcurrentCacheStore small = new ConcurrentCacheStore(3, 60000L);
+        small.put(new MyEntity(1L, "one"));
+        small.put(new MyEntity(2L, "two"));
+        small.put(new MyEntity(3L, "three"));
+        small.scan(Long.MIN_VALUE, Long.MAX_VALUE, 1, entity -> { });
+        assertEquals(1L, small.put(new MyEntity(4L, "four")).get(0).getKey());
+    }
+
+    @Test
+    void testExpiredEntriesAreNotReturned() throws InterruptedException {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(3, 10L);
+        store.put(new MyEntity(1L, "one"));
+        Thread.sleep(30L);
+        assertNull(store.getIfPresent(1L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testExpireEntriesRemovesOnlyDueEntries() throws InterruptedException {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(10, 1500L);
+        store.put(new MyEntity(1L, "idle"));
+        store.put(new MyEntity(2L, "busy"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        int removed = 0;
+        while (removed == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            // Keep id 2 alive; reads never touch the wheel, it is rescheduled when its bucket fires
+            assertNotNull(store.getIfPresent(2L));
+            removed += store.expireEntries();
+        }
+
+        assertEquals(1, removed);
+        assertEquals(1, store.size());
+        assertNotNull(store.getIfPresent(2L));
+    }
+
+    @Test
+    void testExpireAfterWriteIgnoresReadsAndTtlOverridesPerEntry() throws InterruptedException {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(new LruPolicy(10), Weigher.singleton(),
+                Expiry.afterWrite(150L), RemovalListener.none());
+        store.put(new MyEntity(1L, "default"));
+        store.put(new MyEntity(2L, "short"), 30L);
+        store.put(new MyEntity(3L, "long"), 60000L);
+
+        Thread.sleep(60L);
+        assertNull(store.getIfPresent(2L));
+        // Reading does not push the deadline out after a write
+        long deadline = store.getEntryIfPresent(1L).getDeadline();
+        assertEquals(deadline, store.getEntryIfPresent(1L).getDeadline());
+
+        Thread.sleep(120L);
+        assertNull(store.getIfPresent(1L));
+        assertEquals("long", store.getIfPresent(3L).getName());
+        assertEquals(2, store.getExpirationCount());
+    }
+
+    @Test
+    void testCustomExpiryDecidesPerEntity() {
+        // Reference data never expires; everything else lives one minute from its last read
+        Expiry byName = new Expiry() {
+            @Override
+            public long expireAfterWrite(MyEntity entity) {
+                return entity.getName().startsWith("ref-") ? NEVER : 60000L;
+            }
+
+            @Override
+            public long expireAfterRead(MyEntity entity, long ttlMillis, long remainingMillis) {
+                return ttlMillis;
+            }
+        };
+        ConcurrentCacheStore store = new ConcurrentCacheStore(new LruPolicy(10), Weigher.singleton(), byName,
+                RemovalListener.none());
+        store.put(new MyEntity(1L, "ref-country"));
+        store.put(new MyEntity(2L, "order"));
+
+        assertEquals(Long.MAX_VALUE, store.getEntryIfPresent(1L).getDeadline());
+        CacheEntry order = store.getEntryIfPresent(2L);
+        assertTrue(order.getDeadline() - order.getLastAccessTime() <= 60000L);
+        assertEquals(0, store.expireEntries());
+    }
+
+    @Test
+    void testIndexAgreesWithHashMapUnderChurn() {
+        // Large enough that nothing is evicted, so the store must behave exactly like a map
+        ConcurrentCacheStore store = new ConcurrentCacheStore(1 << 20, 60000L);
+        Map<Long, String> model = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Narrow key range with negative ids and zero, so probe runs collide and get shifted back
+            long id = random.nextLong(-5_000, 5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(model.remove(id), name(store.remove(id)));
+            } else {
+                String name = "v" + i;
+                store.put(new MyEntity(id, name));
+                model.put(id, name);
+            }
+            long probe = random.nextLong(-5_000, 5_000);
+            assertEquals(model.get(probe), name(store.getIfPresent(probe)));
+        }
+        assertEquals(model.size(), store.size());
+        model.forEach((id, name) -> assertEquals(name, store.getIfPresent(id).getName()));
+    }
+
+    @Test
+    void testConcurrentAccessRespectsCapacity() throws Exception {
+        ConcurrentCacheStore store = new ConcurrentCacheStore(64, 60000L);
+        AtomicInteger evictions = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    long id = random.nextLong(256);
+                    if (store.getIfPresent(id) == null) {
+                        evictions.addAndGet(store.put(new MyEntity(id, "v" + id)).size());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertTrue(store.size() <= 64, "size " + store.size() + " exceeds capacity");
+        assertTrue(evictions.get() > 0);
+    }
+
+    private static String name(MyEntity entity) {
+        return entity == null ? null : entity.getName();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.eviction.EvictionNode;
+import com.example.cacheservice.cache.eviction.EvictionPolicy;
+import com.example.cacheservice.cache.eviction.EvictionPolicyType;
+import com.example.cacheservice.cache.eviction.HitRatioSimulator.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvictionPolicyTest {
+
+    @Test
+    void testEveryPolicyStaysWithinMaximum() {
+        for (EvictionPolicyType type : EvictionPolicyType.values()) {
+            EvictionPolicy policy = type.create(10, 1, 80);
+            List<EvictionNode> evicted = new ArrayList<>();
+            for (long key = 0; key < 100; key++) {
+                policy.add(new EvictionNode(key), evicted::add);
+                assertTrue(policy.weightedSize() <= 10, type + " exceeded its maximum");
+            }
+            assertEquals(90, evicted.size(), type.name());
+            evicted.forEach(node -> assertFalse(node.isResident()));
+        }
+    }
+
+    @Test
+    void testEveryPolicyShrinksAndGrowsWithItsMaximum() {
+        for (EvictionPolicyType type : EvictionPolicyType.values()) {
+            EvictionPolicy policy = type.create(20, 40, 10, 80);
+            List<EvictionNode> nodes = new ArrayList<>();
+            List<EvictionNode> evicted = new ArrayList<>();
+            for (long key = 0; key < 20; key++) {
+                EvictionNode node = new EvictionNode(key);
+                nodes.add(node);
+                policy.add(node, evicted::add);
+                policy.recordAccess(node);
+            }
+            assertTrue(evicted.isEmpty(), type.name());
+
+            policy.setMaximum(8, evicted::add);
+            assertEquals(8, policy.maximum());
+            assertEquals(8, policy.weightedSize(), type.name());
+            assertEquals(12, evicted.size(), type.name());
+            evicted.forEach(node -> assertFalse(node.isResident()));
+
+            // Room again after growing, without evicting what is left
+            evicted.clear();
+            policy.setMaximum(20, evicted::add);
+            for (long key = 100; key < 112; key++) {
+                policy.add(new EvictionNode(key), evicted::add);
+            }
+            assertTrue(evicted.isEmpty(), type.name());
+            assertEquals(20, policy.weightedSize(), type.name());
+            assertEquals(8, nodes.stream().filter(EvictionNode::isResident).count(), type.name());
+        }
+    }
+
+    @Test
+    void testLfuKeepsFrequentlyUsedNode() {
+        EvictionPolicy policy = EvictionPolicyType.LFU.create(2, 1, 80);
+        EvictionNode hot = new EvictionNode(1);
+        List<EvictionNode> evicted = new ArrayList<>();
+        policy.add(hot, evicted::add);
+        policy.recordAccess(hot);
+        policy.add(new EvictionNode(2), evicted::add);
+        policy.add(new EvictionNode(3), evicted::add);
+
+        assertEquals(1, evicted.size());
+        assertEquals(2, evicted.get(0).getKey());
+        assertTrue(hot.isResident());
+    }
+
+    @Test
+    void testWindowTinyLfuResistsScans() {
+        Simulation lru = simulation(EvictionPolicyType.LRU);
+        Simulation tinyLfu = simulation(EvictionPolicyType.W_TINYLFU);
+        long scanKey = 1_000_000;
+        for (int round = 0; round < 200; round++) {
+            // A stable hot set of 50 keys, interleaved with a one-off scan of 100 keys
+            for (long key = 0; key < 50; key++) {
+                lru.access(key);
+                tinyLfu.access(key);
+            }
+            for (int i = 0; i < 100; i++, scanKey++) {
+                lru.access(scanKey);
+                tinyLfu.access(scanKey);
+            }
+        }
+        assertTrue(tinyLfu.hitRatio() > 0.25, "W-TinyLFU hit ratio " + tinyLfu.hitRatio());
+        assertTrue(tinyLfu.hitRatio() > lru.hitRatio() + 0.2);
+    }
+
+    private static Simulation simulation(EvictionPolicyType type) {
+        return new Simulation(type, 100, type.create(100, 1, 80));
+    }
+}
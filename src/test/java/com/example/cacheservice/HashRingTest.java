@@ -0,0 +1,47 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cluster.HashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+
+    private static final List<String> THREE_NODES =
+            List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    @Test
+    void testIdsSpreadEvenlyAndOwnershipIsStable() {
+        HashRing ring = new HashRing(THREE_NODES, 128);
+        HashRing sameMembersReordered = new HashRing(List.of(THREE_NODES.get(2), THREE_NODES.get(0),
+                THREE_NODES.get(1)), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long id = 0; id < 30000; id++) {
+            String owner = ring.ownerOf(id);
+            counts.merge(owner, 1, Integer::sum);
+            assertEquals(owner, sameMembersReordered.ownerOf(id));
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7000 && count < 13000, "uneven split: " + counts));
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesItsShare() {
+        HashRing before = new HashRing(THREE_NODES, 128);
+        HashRing after = new HashRing(List.of(THREE_NODES.get(0), THREE_NODES.get(1), THREE_NODES.get(2),
+                "http://localhost:8084"), 128);
+        int moved = 0;
+        for (long id = 0; id < 40000; id++) {
+            String owner = after.ownerOf(id);
+            if (!owner.equals(before.ownerOf(id))) {
+                moved++;
+                assertEquals("http://localhost:8084", owner);
+            }
+        }
+        assertTrue(moved > 6000 && moved < 14000, "moved " + moved);
+    }
+}
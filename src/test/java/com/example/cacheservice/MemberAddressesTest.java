@@ -0,0 +1,19 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cluster.MemberAddresses;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemberAddressesTest {
+
+    @Test
+    void testOnlyMemberAddressesAreAccepted() {
+        MemberAddresses members = new MemberAddresses(List.of("http://localhost:8081", "http://127.0.0.1:8082"));
+
+        assertTrue(members.contains("127.0.0.1"));
+        assertFalse(members.contains("203.0.113.7"));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.NegativeCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegativeCacheTest {
+
+    @Test
+    void testOutdatedQueueEntryDoesNotDropANewerRecord() {
+        NegativeCache negative = new NegativeCache(2, 60000L);
+        negative.recordMissing(1L);
+        negative.recordMissing(2L);
+        negative.invalidate(1L);
+        negative.recordMissing(1L);
+
+        // Over the bound: the oldest current record is id 2, not the re-recorded id 1
+        negative.recordMissing(3L);
+
+        assertEquals(2, negative.size());
+        assertTrue(negative.isKnownMissing(1L));
+        assertFalse(negative.isKnownMissing(2L));
+        assertTrue(negative.isKnownMissing(3L));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.cache.CacheEntry;
+import com.example.cacheservice.cache.ConcurrentCacheStore;
+import com.example.cacheservice.cache.OffHeapStore;
+import com.example.cacheservice.entity.MyEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapStoreTest {
+
+    @Test
+    void testTakeReturnsStoredEntityOnce() {
+        try (OffHeapStore store = new OffHeapStore(4096, 1024, null)) {
+            store.putAll(entries(60000L, new MyEntity(1L, "one"), new MyEntity(2L, null)));
+
+            MyEntity promoted = store.take(1L);
+            assertEquals("one", promoted.getName());
+            assertNull(store.take(1L));
+            assertNull(store.take(2L).getName());
+            assertEquals(2, store.getHitCount());
+            assertEquals(1, store.getMissCount());
+        }
+    }
+
+    @Test
+    void testWrappingReclaimsOldestSlabAndReturnsLiveRecords(@TempDir Path dir) {
+        try (OffHeapStore store = new OffHeapStore(2 * 256, 256, dir.resolve("slabs.bin"))) {
+            List<MyEntity> evicted = new ArrayList<>();
+            for (long id = 0; id < 40; id++) {
+                evicted.addAll(store.putAll(entries(60000L, new MyEntity(id, "entity-" + id))));
+            }
+
+            assertFalse(evicted.isEmpty());
+            assertEquals(0L, evicted.get(0).getId());
+            assertEquals(40, evicted.size() + store.size());
+            assertEquals("entity-39", store.take(39L).getName());
+        }
+    }
+
+    @Test
+    void testOversizedRecordIsRejected() {
+        try (OffHeapStore store = new OffHeapStore(1024, 64, null)) {
+            List<MyEntity> rejected = store.putAll(entries(60000L, new MyEntity(1L, "x".repeat(100))));
+            assertEquals(1, rejected.size());
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void testDemotedEntryExpiresAtItsHeapDeadline() throws InterruptedException {
+        try (OffHeapStore store = new OffHeapStore(4096, 1024, null)) {
+            store.putAll(entries(50L, new MyEntity(1L, "short")));
+            store.putAll(entries(60000L, new MyEntity(2L, "long")));
+
+            Thread.sleep(100);
+            assertNull(store.take(1L));
+            assertEquals("long", store.take(2L).getName());
+        }
+    }
+
+    /** The entities as the heap store hands them over on eviction, each with {@code ttlMillis} left to live. */
+    private static List<CacheEntry> entries(long ttlMillis, MyEntity... entities) {
+        ConcurrentCacheStore heap = new ConcurrentCacheStore(entities.length, 60000L);
+        List<CacheEntry> entries = new ArrayList<>(entities.length);
+        for (MyEntity entity : entities) {
+            heap.put(entity, ttlMillis);
+            entries.add(heap.getEntryIfPresent(entity.getId()));
+        }
+        return entries;
+    }
+}
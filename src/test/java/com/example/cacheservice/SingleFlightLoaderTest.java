@@ -0,0 +1,96 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.service.SingleFlightLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightLoaderTest {
+
+    @Test
+    void testWaitersReceiveLeaderException() throws Exception {
+        SingleFlightLoader<Long, String> loader = new SingleFlightLoader<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call(loader, () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("db down");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> call(loader, () -> "unused"));
+        while (loader.getCollapsedCount() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertEquals("db down", leaderError.getCause().getCause().getMessage());
+        assertEquals("db down", followerError.getCause().getCause().getMessage());
+        assertEquals(1, loader.getLoadCount());
+        assertEquals(0, loader.getInFlightCount());
+    }
+
+    @Test
+    void testSequentialLoadsAreNotCollapsed() throws Exception {
+        SingleFlightLoader<Long, String> loader = new SingleFlightLoader<>();
+        assertEquals("a", loader.load(1L, () -> "a"));
+        assertEquals("b", loader.load(1L, () -> "b"));
+        assertEquals(2, loader.getLoadCount());
+        assertEquals(0, loader.getCollapsedCount());
+    }
+
+    @Test
+    void testBlockingCallerJoinsAsyncLoad() throws Exception {
+        SingleFlightLoader<Long, String> loader = new SingleFlightLoader<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<String> async = loader.loadAsync(1L, () -> {
+                release.await(5, TimeUnit.SECONDS);
+                return "loaded";
+            }, executor);
+            CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> call(loader, () -> "unused"));
+            while (loader.getCollapsedCount() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("loaded", async.get(5, TimeUnit.SECONDS));
+            assertEquals("loaded", blocking.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loader.getLoadCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectedAsyncLoadFailsAndClearsFlight() {
+        SingleFlightLoader<Long, String> loader = new SingleFlightLoader<>();
+        CompletableFuture<String> rejected = loader.loadAsync(1L, () -> "unused", task -> {
+            throw new RejectedExecutionException("full");
+        });
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertEquals(0, loader.getInFlightCount());
+    }
+
+    private static String call(SingleFlightLoader<Long, String> loader, Callable<String> body) {
+        try {
+            return loader.load(1L, body);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cacheservice;
+
+import com.example.cacheservice.config.CacheProperties;
+import com.example.cacheservice.entity.MyEntity;
+import com.example.cacheservice.repository.MyEntityRepository;
+import com.example.cacheservice.service.WriteBehindWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindWriterTest {
+
+    @Mock
+    private MyEntityRepository repository;
+
+    private WriteBehindWriter writer;
+
+    @BeforeEach
+    void setup() {
+        CacheProperties.WriteBehind settings = new CacheProperties.WriteBehind();
+        settings.setEnabled(true);
+        settings.setQueueCapacity(2);
+        settings.setFlushSize(100);
+        settings.setFlushIntervalMillis(60000);
+        settings.setOfferTimeoutMillis(1);
+        writer = new WriteBehindWriter(repository, settings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdatesToSameIdAreMergedIntoOneBatch() {
+        writer.enqueue(new MyEntity(1L, "first"));
+        writer.enqueue(new MyEntity(1L, "second"));
+        writer.enqueue(new MyEntity(2L, "other"));
+
+        assertEquals("second", writer.getPending(1L).getName());
+        writer.flush();
+
+        ArgumentCaptor<List<MyEntity>> batch = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertEquals("second", batch.getValue().get(0).getName());
+        assertNull(writer.getPending(1L));
+    }
+
+    @Test
+    void testFullQueueFallsBackToSynchronousSave() {
+        writer.enqueue(new MyEntity(1L, "a"));
+        writer.enqueue(new MyEntity(2L, "b"));
+        MyEntity overflow = new MyEntity(3L, "c");
+        writer.enqueue(overflow);
+
+        verify(repository).save(overflow);
+        assertEquals(2, writer.size());
+    }
+
+    @Test
+    void testCancelDropsQueuedWrite() {
+        writer.enqueue(new MyEntity(1L, "a"));
+        writer.cancel(1L);
+        writer.flush();
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void testCloseDrainsQueue() {
+        writer.enqueue(new MyEntity(1L, "a"));
+        writer.close();
+        verify(repository).saveAll(any());
+        assertEquals(0, writer.size());
+    }
+}